@@ -0,0 +1,72 @@
+package com.supalle.easyexcel.wrapper.benchmark;
+
+import com.supalle.easyexcel.wrapper.Dict;
+import com.supalle.easyexcel.wrapper.ExcelEntity;
+import com.supalle.easyexcel.wrapper.ExcelExporter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 导出吞吐：每次调用把{@code rows}行写入一个xlsx文件，结果为整次导出耗时，除以行数即单行开销。
+ * 配合{@code -prof gc}时，{@code gc.alloc.rate.norm}为整次导出的分配字节数，同样除以行数得到单行分配。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ExportBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    @Param({"10", "40"})
+    private int columns;
+
+    @Param({"0", "5"})
+    private int dictColumns;
+
+    @Param({"0", "5"})
+    private int formatterColumns;
+
+    @Param({"1000"})
+    private int flushSize;
+
+    private ExcelEntity<SyntheticEntity> excelEntity;
+    private Function<String, Dict> dictSupplier;
+    private List<SyntheticEntity> samples;
+    private File outFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        excelEntity = SyntheticEntity.excelEntity(columns, dictColumns, formatterColumns);
+        dictSupplier = SyntheticEntity.dictSupplier();
+        samples = SyntheticEntity.samples(columns, dictColumns, formatterColumns);
+        outFile = Files.createTempFile("export-benchmark", ".xlsx").toFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        outFile.delete();
+    }
+
+    @Benchmark
+    public long export() {
+        ExcelExporter.create()
+                .outFile(outFile)
+                .defaultDictSupplier(dictSupplier)
+                .sheet("benchmark", excelEntity)
+                .flushSize(flushSize)
+                .data(SyntheticEntity.cycle(samples, rows))
+                .startImport();
+        return outFile.length();
+    }
+
+}
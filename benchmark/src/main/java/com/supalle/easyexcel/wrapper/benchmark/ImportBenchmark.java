@@ -0,0 +1,80 @@
+package com.supalle.easyexcel.wrapper.benchmark;
+
+import com.supalle.easyexcel.wrapper.Dict;
+import com.supalle.easyexcel.wrapper.ExcelEntity;
+import com.supalle.easyexcel.wrapper.ExcelExporter;
+import com.supalle.easyexcel.wrapper.ExcelImporter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 导入吞吐：每组参数先导出一个{@code rows}行的xlsx文件，每次调用完整读入一遍并按{@code block}分块交给handler。
+ * 结果与{@code gc.alloc.rate.norm}都是整次导入的值，除以行数即单行开销。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ImportBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    @Param({"10", "40"})
+    private int columns;
+
+    @Param({"0", "5"})
+    private int dictColumns;
+
+    @Param({"0", "5"})
+    private int formatterColumns;
+
+    @Param({"100", "1000", "10000"})
+    private int block;
+
+    @Param({"1"})
+    private int parallelism;
+
+    private ExcelEntity<SyntheticEntity> excelEntity;
+    private Function<String, Dict> dictSupplier;
+    private File inFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        excelEntity = SyntheticEntity.excelEntity(columns, dictColumns, formatterColumns);
+        dictSupplier = SyntheticEntity.dictSupplier();
+        inFile = Files.createTempFile("import-benchmark", ".xlsx").toFile();
+        ExcelExporter.create()
+                .outFile(inFile)
+                .defaultDictSupplier(dictSupplier)
+                .sheet("benchmark", excelEntity)
+                .data(SyntheticEntity.cycle(SyntheticEntity.samples(columns, dictColumns, formatterColumns), rows))
+                .startImport();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        inFile.delete();
+    }
+
+    @Benchmark
+    public void read(Blackhole blackhole) {
+        ExcelImporter.create()
+                .inFile(inFile)
+                .defaultDictSupplier(dictSupplier)
+                .parallelism(parallelism)
+                .sheet(excelEntity)
+                .block(block)
+                .handler(blackhole::consume)
+                .startExport();
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.supalle.easyexcel.wrapper.benchmark;
+
+import com.supalle.easyexcel.wrapper.Dict;
+import com.supalle.easyexcel.wrapper.ExcelEntity;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 基准测试用的合成实体，每列的值存放在数组的对应位置，列映射全部通过{@link ExcelEntity#mapping(String, Class)}构建。
+ * 列的排列：前{@code dictColumns}列为字典列，接着{@code formatterColumns}列为带格式化的日期列，其余列依次为文本、整数、小数。
+ */
+public class SyntheticEntity {
+
+    public static final String DICT_NAME = "status";
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+    private static final int SAMPLE_SIZE = 1024;
+
+    private final Object[] values;
+
+    public SyntheticEntity(int columns) {
+        this.values = new Object[columns];
+    }
+
+    public static ExcelEntity<SyntheticEntity> excelEntity(int columns, int dictColumns, int formatterColumns) {
+        ExcelEntity<SyntheticEntity> excelEntity = ExcelEntity.of(SyntheticEntity.class, () -> new SyntheticEntity(columns));
+        for (int i = 0; i < columns; i++) {
+            int index = i;
+            String headName = "列" + i;
+            if (i < dictColumns) {
+                excelEntity.mapping(headName)
+                        .dict(DICT_NAME)
+                        .getting(e -> (String) e.values[index])
+                        .setting((e, v) -> e.values[index] = v);
+            } else if (i < dictColumns + formatterColumns) {
+                excelEntity.mapping(headName, LocalDate.class)
+                        .getting(e -> (LocalDate) e.values[index], DATE_FORMATTER::format)
+                        .setting((e, v) -> e.values[index] = v, s -> LocalDate.parse(s, DATE_FORMATTER));
+            } else {
+                switch (i % 3) {
+                    case 0:
+                        excelEntity.mapping(headName)
+                                .getting(e -> (String) e.values[index])
+                                .setting((e, v) -> e.values[index] = v);
+                        break;
+                    case 1:
+                        excelEntity.mapping(headName, Integer.class)
+                                .getting(e -> (Integer) e.values[index])
+                                .setting((e, v) -> e.values[index] = v);
+                        break;
+                    default:
+                        excelEntity.mapping(headName, BigDecimal.class)
+                                .getting(e -> (BigDecimal) e.values[index])
+                                .setting((e, v) -> e.values[index] = v);
+                        break;
+                }
+            }
+        }
+        return excelEntity.build();
+    }
+
+    public static Function<String, Dict> dictSupplier() {
+        List<Dict.DictItem> dictItems = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            dictItems.add(Dict.DictItem.builder().value(String.valueOf(i)).label("状态" + i).build());
+        }
+        Dict dict = Dict.builder().dictName(DICT_NAME).comment("状态").dictItems(dictItems).build();
+        return dictName -> DICT_NAME.equals(dictName) ? dict : null;
+    }
+
+    /**
+     * 循环复用的一组样本实体，避免百万行数据常驻内存，也不把造数据的开销计入导出
+     */
+    public static List<SyntheticEntity> samples(int columns, int dictColumns, int formatterColumns) {
+        List<SyntheticEntity> samples = new ArrayList<>(SAMPLE_SIZE);
+        LocalDate epoch = LocalDate.of(2020, 1, 1);
+        for (int row = 0; row < SAMPLE_SIZE; row++) {
+            SyntheticEntity entity = new SyntheticEntity(columns);
+            for (int i = 0; i < columns; i++) {
+                Object value;
+                if (i < dictColumns) {
+                    value = String.valueOf((row + i) % 10);
+                } else if (i < dictColumns + formatterColumns) {
+                    value = epoch.plusDays(row + i);
+                } else if (i % 3 == 0) {
+                    value = "文本" + row + "-" + i;
+                } else if (i % 3 == 1) {
+                    value = row * 31 + i;
+                } else {
+                    value = BigDecimal.valueOf(row * 100L + i, 2);
+                }
+                entity.values[i] = value;
+            }
+            samples.add(entity);
+        }
+        return samples;
+    }
+
+    public static Iterator<SyntheticEntity> cycle(List<SyntheticEntity> samples, int rows) {
+        return new Iterator<SyntheticEntity>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < rows;
+            }
+
+            @Override
+            public SyntheticEntity next() {
+                return samples.get(index++ % samples.size());
+            }
+        };
+    }
+
+}
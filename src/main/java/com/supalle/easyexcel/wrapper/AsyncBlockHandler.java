@@ -0,0 +1,131 @@
+package com.supalle.easyexcel.wrapper;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * 异步块处理器：块先放入有界队列，由独立线程按顺序交给handler，处理线程在提交第一个块时才启动。
+ * 队列满时{@link #accept(Object)}阻塞等待，以此对解析线程施加背压；handler抛出的异常在下一次提交或{@link #finish()}时抛出。
+ */
+class AsyncBlockHandler<B> implements Consumer<B> {
+
+    private static final Object END = new Object();
+    /**
+     * 中止时等待处理线程退出的最长时间，handler不响应中断时不再等待
+     */
+    private static final long ABORT_WAIT_MILLIS = 5000;
+
+    private final Consumer<B> handler;
+    private final BlockingQueue<Object> queue;
+    private final Thread thread;
+    private volatile Throwable error;
+    private volatile boolean aborted;
+    private boolean started;
+
+    AsyncBlockHandler(Consumer<B> handler, int queueCapacity, String threadName) {
+        this.handler = handler;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.thread = new Thread(this::run, threadName);
+        this.thread.setDaemon(true);
+    }
+
+    @Override
+    public void accept(B block) {
+        checkError();
+        start();
+        put(block);
+    }
+
+    /**
+     * 等待已提交的块全部处理完毕
+     */
+    public void finish() {
+        if (!isStarted()) {
+            return;
+        }
+        put(END);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExcelException("等待异步handler处理完毕时被中断", e);
+        }
+        checkError();
+    }
+
+    /**
+     * 丢弃尚未处理的块并停止处理线程，最多等待{@link #ABORT_WAIT_MILLIS}毫秒让正在处理的块结束
+     */
+    public void abort() {
+        if (!isStarted() || !thread.isAlive()) {
+            return;
+        }
+        aborted = true;
+        queue.clear();
+        thread.interrupt();
+        try {
+            thread.join(ABORT_WAIT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void start() {
+        if (!started) {
+            started = true;
+            thread.start();
+        }
+    }
+
+    private synchronized boolean isStarted() {
+        return started;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void run() {
+        try {
+            while (true) {
+                Object block = queue.take();
+                if (block == END) {
+                    return;
+                }
+                // 出错后只消费不处理，保证提交方不会被阻塞
+                if (error != null || aborted) {
+                    continue;
+                }
+                try {
+                    handler.accept((B) block);
+                } catch (Throwable e) {
+                    error = e;
+                }
+            }
+        } catch (InterruptedException e) {
+            // abort
+        }
+    }
+
+    private void put(Object block) {
+        try {
+            queue.put(block);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExcelException("等待异步handler队列空闲时被中断", e);
+        }
+    }
+
+    private void checkError() {
+        Throwable error = this.error;
+        if (error == null) {
+            return;
+        }
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        throw new ExcelException("异步handler处理失败", error);
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.supalle.easyexcel.wrapper;
+
+import com.alibaba.excel.converters.Converter;
+import com.alibaba.excel.enums.CellDataTypeEnum;
+import com.alibaba.excel.metadata.CellData;
+import com.alibaba.excel.metadata.GlobalConfiguration;
+import com.alibaba.excel.read.metadata.holder.ReadHolder;
+import com.alibaba.excel.util.ConverterUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 把单元格读为文本，结果与EasyExcel默认监听器读出的String一致。
+ * 转换器与全局配置在读到表头时取出，之后不依赖解析上下文，可在流水线的转换线程上使用
+ */
+final class CellTextReader implements RowTextReader<Map<Integer, CellData>> {
+
+    private final Map<String, Converter> converterMap;
+    private final GlobalConfiguration globalConfiguration;
+
+    CellTextReader(ReadHolder readHolder) {
+        this.converterMap = readHolder.converterMap();
+        this.globalConfiguration = readHolder.globalConfiguration();
+    }
+
+    String text(CellData cellData, int rowIndex, int columnIndex) {
+        if (cellData == null || cellData.getType() == CellDataTypeEnum.EMPTY) {
+            return null;
+        }
+        return (String) ConverterUtils.convertToJavaObject(cellData, null, null, converterMap, globalConfiguration, rowIndex, columnIndex);
+    }
+
+    @Override
+    public String[] project(Map<Integer, CellData> cellDataMap, int rowIndex, int[] columnIndexes) {
+        String[] values = new String[columnIndexes.length];
+        for (int i = 0; i < columnIndexes.length; i++) {
+            values[i] = text(cellDataMap.get(columnIndexes[i]), rowIndex, columnIndexes[i]);
+        }
+        return values;
+    }
+
+    @Override
+    public Map<Integer, String> texts(Map<Integer, CellData> cellDataMap, int rowIndex) {
+        Map<Integer, String> texts = new HashMap<>(cellDataMap.size() * 4 / 3 + 1);
+        cellDataMap.forEach((columnIndex, cellData) -> texts.put(columnIndex, text(cellData, rowIndex, columnIndex)));
+        return texts;
+    }
+
+}
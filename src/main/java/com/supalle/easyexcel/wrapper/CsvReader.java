@@ -0,0 +1,152 @@
+package com.supalle.easyexcel.wrapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流式的CSV/TSV读取器，按RFC 4180解析：字段可用双引号包围，引号内的分隔符与换行属于字段内容，两个连续的双引号表示一个双引号。
+ * 行尾可以是\r\n、\n或\r；空字段读为null，与Excel的空单元格一致；文件开头的BOM会被忽略
+ */
+final class CsvReader implements Closeable {
+
+    /**
+     * CSV的原始行即字段数组，超出字段数的列为null
+     */
+    static final RowTextReader<String[]> TEXT_READER = new RowTextReader<String[]>() {
+        @Override
+        public String[] project(String[] row, int rowIndex, int[] columnIndexes) {
+            String[] values = new String[columnIndexes.length];
+            for (int i = 0; i < columnIndexes.length; i++) {
+                int columnIndex = columnIndexes[i];
+                values[i] = columnIndex < row.length ? row[columnIndex] : null;
+            }
+            return values;
+        }
+
+        @Override
+        public Map<Integer, String> texts(String[] row, int rowIndex) {
+            Map<Integer, String> texts = new HashMap<>(row.length * 4 / 3 + 1);
+            for (int i = 0; i < row.length; i++) {
+                if (row[i] != null) {
+                    texts.put(i, row[i]);
+                }
+            }
+            return texts;
+        }
+    };
+
+    private static final int NONE = -2;
+
+    private final Reader reader;
+    private final char delimiter;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private int pushback = NONE;
+    private boolean started;
+    private int rowIndex = -1;
+    private final List<String> values = new ArrayList<>();
+    private final StringBuilder text = new StringBuilder();
+
+    CsvReader(Reader reader, char delimiter) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * 读取下一行，没有更多行时返回null；空行返回只有一个null字段的数组
+     */
+    String[] next() throws IOException {
+        int c = read();
+        if (!started) {
+            started = true;
+            if (c == '\uFEFF') {
+                c = read();
+            }
+        }
+        if (c < 0) {
+            return null;
+        }
+        rowIndex++;
+        values.clear();
+        while (true) {
+            text.setLength(0);
+            if (c == '"') {
+                while (true) {
+                    c = read();
+                    if (c < 0) {
+                        throw new ExcelException(String.format("第%d行的引号没有闭合", rowIndex + 1));
+                    }
+                    if (c == '"') {
+                        c = read();
+                        if (c != '"') {
+                            break;
+                        }
+                    }
+                    text.append((char) c);
+                }
+            }
+            // 未加引号的字段，或闭合引号之后到分隔符之间的字符，按原样保留
+            while (c >= 0 && c != delimiter && c != '\n' && c != '\r') {
+                text.append((char) c);
+                c = read();
+            }
+            values.add(text.length() == 0 ? null : text.toString());
+            if (c == delimiter) {
+                c = read();
+                continue;
+            }
+            if (c == '\r') {
+                c = read();
+                if (c != '\n') {
+                    pushback = c;
+                }
+            }
+            break;
+        }
+        return values.toArray(new String[0]);
+    }
+
+    /**
+     * 最近读到的一行的行索引，从0开始，空行也计数
+     */
+    int getRowIndex() {
+        return rowIndex;
+    }
+
+    private int read() throws IOException {
+        if (pushback != NONE) {
+            int c = pushback;
+            pushback = NONE;
+            return c;
+        }
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    static boolean isBlank(String[] row) {
+        for (String value : row) {
+            if (value != null && value.trim().length() > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
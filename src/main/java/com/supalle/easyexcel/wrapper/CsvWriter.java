@@ -0,0 +1,99 @@
+package com.supalle.easyexcel.wrapper;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 流式的CSV/TSV写出器：包含分隔符、双引号或换行的字段用双引号包围，字段中的双引号写为两个，行尾为\r\n。
+ * 数值与日期按EasyExcel写出后再读回的文本输出，使同一实体映射在Excel与CSV之间往返的结果一致；不是线程安全的
+ */
+final class CsvWriter implements Closeable, Flushable {
+
+    private final Writer writer;
+    private final char delimiter;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+    CsvWriter(Writer writer, char delimiter) {
+        this.writer = writer;
+        this.delimiter = delimiter;
+    }
+
+    void writeRow(List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(delimiter);
+            }
+            writeField(text(values.get(i)));
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeField(String text) throws IOException {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        if (!needsQuote(text)) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        int from = 0;
+        int quote;
+        while ((quote = text.indexOf('"', from)) >= 0) {
+            writer.write(text, from, quote + 1 - from);
+            writer.write('"');
+            from = quote + 1;
+        }
+        writer.write(text, from, text.length() - from);
+        writer.write('"');
+    }
+
+    private boolean needsQuote(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == delimiter || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String text(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof String) {
+            return (String) value;
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                return value.toString();
+            }
+            return new BigDecimal(value.toString()).stripTrailingZeros().toPlainString();
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).stripTrailingZeros().toPlainString();
+        }
+        if (value instanceof Date) {
+            return dateFormat.format((Date) value);
+        }
+        return value.toString();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -1,22 +1,244 @@
 package com.supalle.easyexcel.wrapper;
 
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.*;
 
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 
 
 @Data
-@Builder
 @NoArgsConstructor
-@AllArgsConstructor
 public class Dict {
+
+    /**
+     * 按需查找的字典默认缓存的字典项数
+     */
+    public static final int DEFAULT_CACHE_SIZE = 10000;
+    /**
+     * 出错信息中最多列出的字典项数
+     */
+    static final int MAX_DESCRIBED_ITEMS = 20;
+
     private String dictName;
     private String comment;
     private List<DictItem> dictItems;
+    /**
+     * 不为空时为按需查找的字典，不使用dictItems，见{@link DictResolver}
+     */
+    private DictResolver resolver;
+    /**
+     * 按需查找的字典缓存的字典项数(值与标签各自缓存)，不大于0时为{@link #DEFAULT_CACHE_SIZE}
+     */
+    private int cacheSize;
+
+    // 字典项索引，首次使用时构建，dictItems变更后重建
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient volatile Map<String, DictItem> valueIndex;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient volatile Map<String, DictItem> labelIndex;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient volatile Map<String, DictItem> ignoreCaseLabelIndex;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient volatile ConcurrentMap<Class<?>, TypedIndex<?>> typedIndexes;
+    // 按需查找的字典的值/标签查找器
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient volatile DictLookup valueLookup;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient volatile DictLookup labelLookup;
+    // 说明或字典项变更时递增，渲染好的表头批注据此判断是否需要重新渲染
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient volatile int version;
+
+    public Dict(String dictName, String comment, List<DictItem> dictItems) {
+        this(dictName, comment, dictItems, null, 0);
+    }
+
+    @Builder
+    public Dict(String dictName, String comment, List<DictItem> dictItems, DictResolver resolver, int cacheSize) {
+        this.dictName = dictName;
+        this.comment = comment;
+        this.dictItems = dictItems;
+        this.resolver = resolver;
+        this.cacheSize = cacheSize;
+    }
+
+    public void setComment(String comment) {
+        this.comment = comment;
+        this.version++;
+    }
+
+    public void setDictItems(List<DictItem> dictItems) {
+        this.dictItems = dictItems;
+        resetIndexes();
+    }
+
+    public void setResolver(DictResolver resolver) {
+        this.resolver = resolver;
+        resetIndexes();
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+        resetIndexes();
+    }
+
+    /**
+     * 是否为按需查找的字典
+     */
+    public boolean isLazy() {
+        return resolver != null;
+    }
+
+    int version() {
+        return version;
+    }
+
+    private void resetIndexes() {
+        this.version++;
+        this.valueIndex = null;
+        this.labelIndex = null;
+        this.ignoreCaseLabelIndex = null;
+        this.typedIndexes = null;
+        this.valueLookup = null;
+        this.labelLookup = null;
+    }
+
+    /**
+     * 值 -> 字典项；按需查找的字典没有完整的字典项，使用{@link #getValueLookup()}
+     */
+    public Map<String, DictItem> getValueIndex() {
+        checkEager();
+        Map<String, DictItem> index = this.valueIndex;
+        if (index == null) {
+            this.valueIndex = index = buildIndex(DictItem::getValue, "值");
+        }
+        return index;
+    }
+
+    /**
+     * 标签 -> 字典项；按需查找的字典使用{@link #getLabelLookup()}
+     */
+    public Map<String, DictItem> getLabelIndex() {
+        checkEager();
+        Map<String, DictItem> index = this.labelIndex;
+        if (index == null) {
+            this.labelIndex = index = buildIndex(DictItem::getLabel, "标签");
+        }
+        return index;
+    }
+
+    /**
+     * 忽略大小写的标签 -> 字典项，键为{@link #ignoreCase(String)}处理后的标签；
+     * 按需查找的字典是否忽略大小写由{@link DictResolver}决定，使用{@link #getLabelLookup()}
+     */
+    public Map<String, DictItem> getIgnoreCaseLabelIndex() {
+        checkEager();
+        Map<String, DictItem> index = this.ignoreCaseLabelIndex;
+        if (index == null) {
+            this.ignoreCaseLabelIndex = index = buildIndex(dictItem -> ignoreCase(dictItem.getLabel()), "标签(忽略大小写)");
+        }
+        return index;
+    }
+
+    /**
+     * 按需查找的字典按值查找字典项，见{@link DictLookup}
+     */
+    public DictLookup getValueLookup() {
+        checkLazy();
+        DictLookup lookup = this.valueLookup;
+        if (lookup == null) {
+            this.valueLookup = lookup = new DictLookup(resolver::resolveValues, cacheSize);
+        }
+        return lookup;
+    }
+
+    /**
+     * 按需查找的字典按标签查找字典项，见{@link DictLookup}
+     */
+    public DictLookup getLabelLookup() {
+        checkLazy();
+        DictLookup lookup = this.labelLookup;
+        if (lookup == null) {
+            this.labelLookup = lookup = new DictLookup(resolver::resolveLabels, cacheSize);
+        }
+        return lookup;
+    }
+
+    private void checkEager() {
+        if (resolver != null) {
+            throw new ExcelException(String.format("字典'%s'为按需查找的字典，没有完整的字典项索引，请使用getValueLookup()或getLabelLookup()", dictName));
+        }
+    }
+
+    private void checkLazy() {
+        if (resolver == null) {
+            throw new ExcelException(String.format("字典'%s'不是按需查找的字典，请使用getValueIndex()或getLabelIndex()", dictName));
+        }
+    }
+
+    static String ignoreCase(String label) {
+        return label == null ? null : label.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 按类型取值的索引，见{@link TypedIndex}；每个类型首次使用时构建，按需查找的字典返回null
+     */
+    @SuppressWarnings("unchecked")
+    public <K> TypedIndex<K> getValueIndex(Class<K> type) {
+        if (resolver != null) {
+            return null;
+        }
+        ConcurrentMap<Class<?>, TypedIndex<?>> indexes = this.typedIndexes;
+        if (indexes == null) {
+            this.typedIndexes = indexes = new ConcurrentHashMap<>();
+        }
+        return (TypedIndex<K>) indexes.computeIfAbsent(type, t -> new TypedIndex<>(getValueIndex(), TypeConverters.of(t)));
+    }
+
+    /**
+     * 出错信息中对可用字典项的说明，字典项过多时只列出前面的部分，按需查找的字典不列出
+     */
+    String describeRange(String dictName) {
+        if (resolver != null) {
+            return String.format("字典'%s:%s'中没有该项", dictName, comment);
+        }
+        String items;
+        if (dictItems == null || dictItems.size() <= MAX_DESCRIBED_ITEMS) {
+            items = String.valueOf(dictItems);
+        } else {
+            items = dictItems.subList(0, MAX_DESCRIBED_ITEMS).toString().replaceFirst("]$", String.format(", ...共%d项]", dictItems.size()));
+        }
+        return String.format("可用字典'%s:%s'只包含%s", dictName, comment, items);
+    }
+
+    private Map<String, DictItem> buildIndex(Function<DictItem, String> key, String keyName) {
+        if (dictItems == null || dictItems.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, DictItem> index = new HashMap<>(dictItems.size() * 4 / 3 + 1);
+        for (DictItem dictItem : dictItems) {
+            if (index.putIfAbsent(key.apply(dictItem), dictItem) != null) {
+                throw new ExcelException(String.format("字典'%s'存在重复的%s'%s'", dictName, keyName, key.apply(dictItem)));
+            }
+        }
+        return Collections.unmodifiableMap(index);
+    }
 
     @Override
     public boolean equals(Object o) {
@@ -33,6 +255,46 @@ public class Dict {
         return dictName != null ? dictName.hashCode() : 0;
     }
 
+    /**
+     * 类型化的值 -> 字典项，如Integer、枚举等取值可直接查找，不必先转换为文本；同时记录每个字典项转换后的值，导入时直接取用。
+     * 只收录转换后再转为文本与原值完全一致的字典项，与按{@code String.valueOf}查找的结果相同，不收录的字典项仍按文本查找
+     */
+    public static final class TypedIndex<K> {
+        private final Map<Object, DictItem> items;
+        private final Map<DictItem, K> keys;
+
+        TypedIndex(Map<String, DictItem> valueIndex, Function<String, K> converter) {
+            this.items = new HashMap<>(valueIndex.size() * 4 / 3 + 1);
+            this.keys = new IdentityHashMap<>(valueIndex.size());
+            valueIndex.forEach((value, dictItem) -> {
+                K key;
+                try {
+                    key = converter.apply(value);
+                } catch (RuntimeException e) {
+                    return;
+                }
+                if (key != null && String.valueOf(key).equals(value)) {
+                    items.put(key, dictItem);
+                    keys.put(dictItem, key);
+                }
+            });
+        }
+
+        /**
+         * 类型化的值对应的字典项，没有时返回null
+         */
+        public DictItem get(Object key) {
+            return items.get(key);
+        }
+
+        /**
+         * 字典项转换后的值，字典项没有收录时返回null
+         */
+        public K keyOf(DictItem dictItem) {
+            return keys.get(dictItem);
+        }
+    }
+
     @Data
     @Builder
     @NoArgsConstructor
@@ -0,0 +1,185 @@
+package com.supalle.easyexcel.wrapper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Function;
+
+/**
+ * 字典缓存，可直接作为{@code defaultDictSupplier}或{@code dictSupplier}使用，线程安全，可在多次导入导出之间共享。
+ * 缓存的{@link Dict}连同其值/标签索引一起复用；支持容量与过期时间淘汰以及主动失效。
+ * <pre>
+ * DictCache dictCache = DictCache.of(dictService::getDict).maximumSize(500).expireAfterWrite(Duration.ofMinutes(10));
+ * ExcelExporter.create().defaultDictSupplier(dictCache)...
+ * </pre>
+ */
+public class DictCache implements Function<String, Dict> {
+
+    private final Function<String, Dict> loader;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile int maximumSize = Integer.MAX_VALUE;
+    private volatile long expireAfterWriteNanos = Long.MAX_VALUE;
+
+    private DictCache(Function<String, Dict> loader) {
+        this.loader = loader;
+    }
+
+    public static DictCache of(Function<String, Dict> loader) {
+        if (loader == null) {
+            throw new ExcelException("字典加载方法不能为Null");
+        }
+        return new DictCache(loader);
+    }
+
+    public DictCache maximumSize(int maximumSize) {
+        if (maximumSize < 0) {
+            throw new ExcelException("字典缓存容量不能小于0");
+        }
+        this.maximumSize = maximumSize;
+        return this;
+    }
+
+    public DictCache expireAfterWrite(Duration duration) {
+        this.expireAfterWriteNanos = duration == null ? Long.MAX_VALUE : duration.toNanos();
+        return this;
+    }
+
+    @Override
+    public Dict apply(String dictName) {
+        while (true) {
+            long now = System.nanoTime();
+            Entry entry = entries.get(dictName);
+            if (entry != null && !entry.isExpired(now, expireAfterWriteNanos)) {
+                return entry.get(dictName);
+            }
+            // 加载在映射之外进行，同一字典并发请求时只有放入成功的线程加载，其余线程等待其结果
+            Entry loading = new Entry(() -> load(dictName));
+            boolean owner = entry == null ? entries.putIfAbsent(dictName, loading) == null : entries.replace(dictName, entry, loading);
+            if (!owner) {
+                continue;
+            }
+            Dict dict;
+            try {
+                dict = loading.load(dictName);
+            } finally {
+                if (loading.dict == null) {
+                    entries.remove(dictName, loading);
+                }
+            }
+            evictIfNecessary();
+            return dict;
+        }
+    }
+
+    /**
+     * 使指定字典失效，下次使用时重新加载
+     */
+    public void invalidate(String dictName) {
+        entries.remove(dictName);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private Dict load(String dictName) {
+        Dict dict = loader.apply(dictName);
+        if (dict != null && !dict.isLazy()) {
+            // 预先构建值索引，随字典一起缓存
+            dict.getValueIndex();
+        }
+        return dict;
+    }
+
+    /**
+     * 先移除过期的字典，仍超出容量时按加载时间一次移除最早加载的若干个，正在加载的不参与淘汰
+     */
+    private void evictIfNecessary() {
+        if (entries.size() <= maximumSize) {
+            return;
+        }
+        long now = System.nanoTime();
+        entries.entrySet().removeIf(e -> e.getValue().isExpired(now, expireAfterWriteNanos));
+        int overflow = entries.size() - maximumSize;
+        if (overflow <= 0) {
+            return;
+        }
+        List<Map.Entry<String, Entry>> loaded = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            if (e.getValue().isLoaded()) {
+                loaded.add(e);
+            }
+        }
+        loaded.sort(Comparator.comparingLong(e -> e.getValue().loadedAt));
+        for (Map.Entry<String, Entry> e : loaded.subList(0, Math.min(overflow, loaded.size()))) {
+            entries.remove(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * 一个字典的加载结果，加载完成前其他线程在{@link #get(String)}上等待
+     */
+    private static final class Entry {
+        private final FutureTask<Dict> task;
+        private volatile Thread loadingThread;
+        private volatile Dict dict;
+        private volatile long loadedAt;
+
+        Entry(Callable<Dict> loader) {
+            this.task = new FutureTask<>(loader);
+        }
+
+        Dict load(String dictName) {
+            loadingThread = Thread.currentThread();
+            try {
+                task.run();
+            } finally {
+                loadingThread = null;
+            }
+            Dict dict = get(dictName);
+            this.loadedAt = System.nanoTime();
+            this.dict = dict;
+            return dict;
+        }
+
+        Dict get(String dictName) {
+            if (loadingThread == Thread.currentThread()) {
+                throw new ExcelException(String.format("字典'%s'在加载过程中又请求了自身", dictName));
+            }
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ExcelException(String.format("等待字典'%s'加载时被中断", dictName), e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new ExcelException(String.format("字典'%s'加载失败", dictName), cause);
+            }
+        }
+
+        boolean isLoaded() {
+            return dict != null;
+        }
+
+        boolean isExpired(long now, long expireAfterWriteNanos) {
+            return isLoaded() && expireAfterWriteNanos != Long.MAX_VALUE && now - loadedAt >= expireAfterWriteNanos;
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.supalle.easyexcel.wrapper;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 按需查找的字典的查找器：先查LRU缓存，缓存中没有的交给{@link DictResolver}，查不到的也缓存下来。
+ * 字典项不在本地，只能按键查找，不能遍历；导入导出在转换每批行之前调用{@link #prefetch(Collection)}，一批只查找一次。线程安全
+ */
+public final class DictLookup {
+
+    private static final Dict.DictItem ABSENT = new Dict.DictItem();
+
+    private final Function<Collection<String>, Map<String, Dict.DictItem>> loader;
+    private final Map<String, Dict.DictItem> cache;
+
+    DictLookup(Function<Collection<String>, Map<String, Dict.DictItem>> loader, int cacheSize) {
+        this.loader = loader;
+        this.cache = new LruCache(cacheSize > 0 ? cacheSize : Dict.DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * 键对应的字典项，缓存中没有时单独查找一次，查不到时返回null
+     */
+    public Dict.DictItem get(String key) {
+        if (key == null) {
+            return null;
+        }
+        Dict.DictItem dictItem;
+        synchronized (cache) {
+            dictItem = cache.get(key);
+        }
+        if (dictItem == null) {
+            dictItem = load(Collections.singletonList(key)).get(key);
+        }
+        return dictItem == ABSENT ? null : dictItem;
+    }
+
+    /**
+     * 批量查找缓存中没有的键
+     */
+    public void prefetch(Collection<String> keys) {
+        Set<String> missing = new LinkedHashSet<>();
+        synchronized (cache) {
+            for (String key : keys) {
+                if (key != null && !cache.containsKey(key)) {
+                    missing.add(key);
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            load(missing);
+        }
+    }
+
+    private Map<String, Dict.DictItem> load(Collection<String> keys) {
+        Map<String, Dict.DictItem> loaded = loader.apply(keys);
+        if (loaded == null) {
+            loaded = Collections.emptyMap();
+        }
+        synchronized (cache) {
+            for (String key : keys) {
+                Dict.DictItem dictItem = loaded.get(key);
+                cache.put(key, dictItem == null ? ABSENT : dictItem);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 按访问顺序淘汰最久未使用的字典项
+     */
+    private static final class LruCache extends LinkedHashMap<String, Dict.DictItem> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        LruCache(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Dict.DictItem> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
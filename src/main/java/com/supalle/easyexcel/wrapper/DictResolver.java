@@ -0,0 +1,25 @@
+package com.supalle.easyexcel.wrapper;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 按需查找字典项，用于字典项很多(如产品编码、组织机构)、不适合一次性载入的字典。
+ * 导入导出时每批行只查找一次缓存中没有的值或标签，查到的字典项缓存在字典的LRU中。
+ * <pre>
+ * Dict.builder().dictName("product").comment("产品").resolver(productResolver).cacheSize(20000).build();
+ * </pre>
+ */
+public interface DictResolver {
+
+    /**
+     * 按值批量查找，返回查到的 值 -> 字典项，查不到的值不出现在结果中
+     */
+    Map<String, Dict.DictItem> resolveValues(Collection<String> values);
+
+    /**
+     * 按标签批量查找，返回查到的 标签 -> 字典项，查不到的标签不出现在结果中
+     */
+    Map<String, Dict.DictItem> resolveLabels(Collection<String> labels);
+
+}
@@ -0,0 +1,19 @@
+package com.supalle.easyexcel.wrapper;
+
+/**
+ * 导入时映射的列在表头中出现多次的处理方式；没有映射的重复列不受影响
+ */
+public enum DuplicateHeadPolicy {
+    /**
+     * 使用最左边的一列
+     */
+    FIRST,
+    /**
+     * 使用最右边的一列
+     */
+    LAST,
+    /**
+     * 报错，并指出重复的列
+     */
+    ERROR
+}
@@ -0,0 +1,227 @@
+package com.supalle.easyexcel.wrapper;
+
+import com.alibaba.excel.write.handler.AbstractRowWriteHandler;
+import com.alibaba.excel.write.metadata.holder.WriteSheetHolder;
+import com.alibaba.excel.write.metadata.holder.WriteTableHolder;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.ClientAnchor;
+import org.apache.poi.ss.usermodel.Comment;
+import org.apache.poi.ss.usermodel.CreationHelper;
+import org.apache.poi.ss.usermodel.Drawing;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 导入时把出错的行写入错误工作簿：每张出错的工作表对应一张同名工作表，保留原始的列，
+ * 末尾追加源行号与错误信息列，出错的单元格附带批注。出错的行边导入边写出，不需要再次读取源文件；
+ * 第一次出错时才创建工作簿，没有错误时不会写出任何内容。
+ */
+final class ErrorWorkbookWriter implements ImportErrors.FailedRowListener, AutoCloseable {
+
+    static final String ROW_NUMBER_HEAD = "源行号";
+    static final String MESSAGE_HEAD = "错误信息";
+    private static final int FLUSH_SIZE = 100;
+
+    private final File outFile;
+    private final OutputStream outputStream;
+    private final ExcelExporter exporter = ExcelExporter.create();
+    private final Map<Integer, ErrorSheet> errorSheets = new HashMap<>();
+    private ExcelExporter.Session session;
+
+    /**
+     * 写出到文件，或写出到流(流由调用方关闭)
+     */
+    ErrorWorkbookWriter(File outFile, OutputStream outputStream) {
+        this.outFile = outFile;
+        this.outputStream = outputStream;
+    }
+
+    /**
+     * 读到源工作表的表头，每列为从最上层分组到列名的路径
+     */
+    synchronized void head(int sheetNo, String sheetName, Map<Integer, List<String>> headPaths) {
+        errorSheets.put(sheetNo, new ErrorSheet(sheetName, headPaths));
+    }
+
+    /**
+     * 源工作表的表头不符(缺少映射的列或映射的列重复)，写出一行说明
+     */
+    synchronized void headFailed(int sheetNo, List<String> reasons) {
+        ErrorSheet errorSheet = errorSheets.get(sheetNo);
+        String message = String.join("；", reasons);
+        errorSheet.buffer.add(new FailedRow(new String[errorSheet.columnIndexes.length], null, message, new String[errorSheet.columnIndexes.length]));
+        flush(sheetNo);
+    }
+
+    @Override
+    public synchronized void rowFailed(int sheetNo, int rowIndex, Map<Integer, String> data, List<ExcelCellException> cellErrors) {
+        ErrorSheet errorSheet = errorSheets.get(sheetNo);
+        int columnCount = errorSheet.columnIndexes.length;
+        String[] values = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            values[i] = data.get(errorSheet.columnIndexes[i]);
+        }
+        String[] reasons = new String[columnCount];
+        for (ExcelCellException e : cellErrors) {
+            Integer position = errorSheet.positions.get(e.getColumnIndex());
+            if (position != null) {
+                reasons[position] = reasons[position] == null ? e.getMessage() : reasons[position] + "\n" + e.getMessage();
+            }
+        }
+        String message = cellErrors.stream().map(Throwable::getMessage).collect(Collectors.joining("；"));
+        errorSheet.buffer.add(new FailedRow(values, rowIndex + 1, message, reasons));
+        if (errorSheet.buffer.size() >= FLUSH_SIZE) {
+            flush(sheetNo);
+        }
+    }
+
+    /**
+     * 写出源工作表已缓冲的出错行
+     */
+    synchronized void flush(int sheetNo) {
+        ErrorSheet errorSheet = errorSheets.get(sheetNo);
+        if (errorSheet == null || errorSheet.buffer.isEmpty()) {
+            return;
+        }
+        if (session == null) {
+            session = open();
+        }
+        if (errorSheet.sheet == null) {
+            errorSheet.sheet = exporter.sheet(errorSheet.sheetName, errorSheet.excelEntity())
+                    .flushSize(FLUSH_SIZE)
+                    .writeHandler(new CommentHandler(errorSheet));
+        }
+        // 一次写出不超过flushSize行，批注处理器按本次写出的相对行号找到对应的出错行
+        errorSheet.writing = errorSheet.buffer;
+        try {
+            session.write(errorSheet.sheet, errorSheet.writing);
+        } finally {
+            errorSheet.writing = null;
+            errorSheet.buffer = new ArrayList<>(FLUSH_SIZE);
+        }
+    }
+
+    private ExcelExporter.Session open() {
+        if (outputStream != null) {
+            return exporter.outputStream(outputStream).autoCloseStream(false).open();
+        }
+        try {
+            return exporter.outputStream(new FileOutputStream(outFile)).autoCloseStream(true).open();
+        } catch (FileNotFoundException e) {
+            throw new ExcelException("无法创建错误工作簿 " + outFile.getName(), e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        errorSheets.keySet().forEach(this::flush);
+        if (session != null) {
+            session.close();
+        }
+    }
+
+    private static final class ErrorSheet {
+        private final String sheetName;
+        private final int[] columnIndexes;
+        private final List<String>[] headPaths;
+        // 源列索引 -> 错误工作表中的位置
+        private final Map<Integer, Integer> positions = new HashMap<>();
+        private List<FailedRow> buffer = new ArrayList<>(FLUSH_SIZE);
+        private List<FailedRow> writing;
+        private ExcelExporter.Sheet<FailedRow> sheet;
+
+        @SuppressWarnings("unchecked")
+        ErrorSheet(String sheetName, Map<Integer, List<String>> headPaths) {
+            this.sheetName = sheetName;
+            this.columnIndexes = headPaths.keySet().stream().sorted().mapToInt(Integer::intValue).toArray();
+            this.headPaths = new List[columnIndexes.length];
+            for (int i = 0; i < columnIndexes.length; i++) {
+                this.headPaths[i] = headPaths.get(columnIndexes[i]);
+                positions.put(columnIndexes[i], i);
+            }
+        }
+
+        /**
+         * 按源表头的分组还原多行表头，源行号与错误信息列不分组
+         */
+        ExcelEntity<FailedRow> excelEntity() {
+            ExcelEntity<FailedRow> excelEntity = ExcelEntity.of(FailedRow.class);
+            for (int i = 0; i < headPaths.length; i++) {
+                int position = i;
+                List<String> headPath = headPaths[i];
+                excelEntity.mapping(headPath.get(headPath.size() - 1).trim())
+                        .group(headPath.subList(0, headPath.size() - 1).toArray(new String[0]))
+                        .getting(row -> row.values[position]);
+            }
+            excelEntity.mapping(ROW_NUMBER_HEAD, Integer.class).getting(row -> row.rowNumber);
+            excelEntity.mapping(MESSAGE_HEAD).getting(row -> row.message);
+            return excelEntity.build();
+        }
+    }
+
+    private static final class FailedRow {
+        private final String[] values;
+        // 源工作表中的行号，从1开始，与Excel中显示的一致；表头不符时为null
+        private final Integer rowNumber;
+        private final String message;
+        private final String[] reasons;
+
+        FailedRow(String[] values, Integer rowNumber, String message, String[] reasons) {
+            this.values = values;
+            this.rowNumber = rowNumber;
+            this.message = message;
+            this.reasons = reasons;
+        }
+    }
+
+    /**
+     * 给出错的单元格添加批注
+     */
+    private static final class CommentHandler extends AbstractRowWriteHandler {
+        private final ErrorSheet errorSheet;
+
+        CommentHandler(ErrorSheet errorSheet) {
+            this.errorSheet = errorSheet;
+        }
+
+        @Override
+        public void afterRowDispose(WriteSheetHolder writeSheetHolder, WriteTableHolder writeTableHolder, org.apache.poi.ss.usermodel.Row row,
+                                    Integer relativeRowIndex, Boolean isHead) {
+            List<FailedRow> writing = errorSheet.writing;
+            if (isHead || writing == null || relativeRowIndex == null || relativeRowIndex >= writing.size()) {
+                return;
+            }
+            String[] reasons = writing.get(relativeRowIndex).reasons;
+            org.apache.poi.ss.usermodel.Sheet sheet = writeSheetHolder.getSheet();
+            CreationHelper creationHelper = sheet.getWorkbook().getCreationHelper();
+            Drawing<?> drawing = null;
+            for (int i = 0; i < reasons.length; i++) {
+                if (reasons[i] == null) {
+                    continue;
+                }
+                if (drawing == null) {
+                    drawing = sheet.createDrawingPatriarch();
+                }
+                ClientAnchor anchor = creationHelper.createClientAnchor();
+                // 批注的单元格取自锚点的起始位置
+                anchor.setCol1(i);
+                anchor.setRow1(row.getRowNum());
+                anchor.setCol2(i + 3);
+                anchor.setRow2(row.getRowNum() + 3);
+                Comment comment = drawing.createCellComment(anchor);
+                comment.setString(creationHelper.createRichTextString(reasons[i]));
+                Cell cell = row.getCell(i);
+                if (cell == null) {
+                    cell = row.createCell(i);
+                }
+                cell.setCellComment(comment);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.supalle.easyexcel.wrapper;
+
+import lombok.Getter;
+
+/**
+ * 导入时单元格数据不合法，如必填为空、字典值超出范围或类型转换失败
+ */
+@Getter
+public class ExcelCellException extends ExcelException {
+
+    private final int rowIndex;
+    /**
+     * 单元格的列索引，未知时为-1
+     */
+    private final int columnIndex;
+    private final String headName;
+    private final String rawValue;
+
+    public ExcelCellException(int rowIndex, String headName, String rawValue, String message) {
+        this(rowIndex, -1, headName, rawValue, message);
+    }
+
+    public ExcelCellException(int rowIndex, String headName, String rawValue, String message, Throwable cause) {
+        this(rowIndex, -1, headName, rawValue, message, cause);
+    }
+
+    public ExcelCellException(int rowIndex, int columnIndex, String headName, String rawValue, String message) {
+        super(message);
+        this.rowIndex = rowIndex;
+        this.columnIndex = columnIndex;
+        this.headName = headName;
+        this.rawValue = rawValue;
+    }
+
+    public ExcelCellException(int rowIndex, int columnIndex, String headName, String rawValue, String message, Throwable cause) {
+        super(message, cause);
+        this.rowIndex = rowIndex;
+        this.columnIndex = columnIndex;
+        this.headName = headName;
+        this.rawValue = rawValue;
+    }
+}
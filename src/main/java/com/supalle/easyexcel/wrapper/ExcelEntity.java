@@ -7,13 +7,16 @@ import lombok.Setter;
 import java.util.*;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Getter
 public class ExcelEntity<E> {
 
     private Class<E> entityClass;
+    private Supplier<E> entityFactory;
     private List<ExcelColumnMapping> excelColumnMappings;
     private HorizontalCellStyleStrategy horizontalCellStyleStrategy;
+    private Set<HeadMatch> headMatch;
 
     public static <E> ExcelEntity<E> of(Class<E> entityClass) {
         ExcelEntity<E> excelEntity = new ExcelEntity<>();
@@ -22,11 +25,59 @@ public class ExcelEntity<E> {
         return excelEntity;
     }
 
+    public static <E> ExcelEntity<E> of(Class<E> entityClass, Supplier<E> entityFactory) {
+        return of(entityClass).entityFactory(entityFactory);
+    }
+
+    /**
+     * 导入时创建实体对象的工厂，如{@code Foo::new}
+     */
+    public ExcelEntity<E> entityFactory(Supplier<E> entityFactory) {
+        this.entityFactory = entityFactory;
+        return this;
+    }
+
+    /**
+     * 没有指定工厂时，使用按实体类型生成并缓存的无参构造器引用
+     */
+    public Supplier<E> getEntityFactory() {
+        return entityFactory != null ? entityFactory : Instantiators.of(entityClass);
+    }
+
     public ExcelEntity<E> horizontalCellStyleStrategy(HorizontalCellStyleStrategy horizontalCellStyleStrategy) {
         this.horizontalCellStyleStrategy = horizontalCellStyleStrategy;
         return this;
     }
 
+    /**
+     * 导入时各列默认的表头匹配选项，映射列自己指定了选项时以映射列的为准
+     */
+    public ExcelEntity<E> headMatch(HeadMatch... headMatch) {
+        this.headMatch = toHeadMatch(headMatch);
+        return this;
+    }
+
+    /**
+     * 表头的行数，即各列表头路径的最大长度
+     */
+    public int getHeadRowNumber() {
+        int headRowNumber = 1;
+        if (excelColumnMappings != null) {
+            for (ExcelColumnMapping mapping : excelColumnMappings) {
+                headRowNumber = Math.max(headRowNumber, mapping.getHeadPath().size());
+            }
+        }
+        return headRowNumber;
+    }
+
+    private static Set<HeadMatch> toHeadMatch(HeadMatch... headMatch) {
+        Set<HeadMatch> options = EnumSet.noneOf(HeadMatch.class);
+        if (headMatch != null) {
+            options.addAll(Arrays.asList(headMatch));
+        }
+        return Collections.unmodifiableSet(options);
+    }
+
     public ExcelColumnMapping<E, String, String> mapping(String headName) {
         return mapping(headName, String.class, String.class);
     }
@@ -113,6 +164,20 @@ public class ExcelEntity<E> {
         return this;
     }
 
+    /**
+     * 按当前的列映射编译导出计划，字典通过dictSupplier一次性解析
+     */
+    public ExcelExportPlan<E> compileExportPlan(Function<String, Dict> dictSupplier) {
+        return ExcelExportPlan.compile(this, dictSupplier);
+    }
+
+    /**
+     * 按读到的表头(表头名 -> 列索引)编译导入计划，字典通过dictSupplier一次性解析
+     */
+    public ExcelImportPlan<E> compileImportPlan(Map<String, Integer> headIndexMap, Function<String, Dict> dictSupplier) {
+        return ExcelImportPlan.compile(this, headIndexMap, dictSupplier);
+    }
+
     @Getter
     public static class ExcelColumnMapping<E, Ex, Im> {
 
@@ -120,8 +185,12 @@ public class ExcelEntity<E> {
         transient ExcelEntity<E> parent;
 
         private String headName;
+        private List<String> groups;
+        private List<String> aliases;
+        private Set<HeadMatch> headMatch;
         private String dict;
         private boolean dictUsedValue = false;
+        private boolean dictIgnoreCase = false;
 
         private String comment;
 
@@ -136,6 +205,44 @@ public class ExcelEntity<E> {
             return this;
         }
 
+        /**
+         * 多行表头时该列所属的分组，从最上层开始；导出时相邻列的相同分组会合并，导入时按完整路径匹配
+         */
+        public ExcelColumnMapping<E, Ex, Im> group(String... groups) {
+            this.groups = groups == null ? null : Collections.unmodifiableList(Arrays.asList(groups.clone()));
+            return this;
+        }
+
+        /**
+         * 表头路径：分组加上表头名称
+         */
+        public List<String> getHeadPath() {
+            List<String> headPath = new ArrayList<>();
+            if (groups != null) {
+                for (String group : groups) {
+                    headPath.add(String.valueOf(group).trim());
+                }
+            }
+            headPath.add(String.valueOf(headName).trim());
+            return headPath;
+        }
+
+        /**
+         * 导入时也接受的其它表头名称，表头中没有headName时按声明的顺序依次查找
+         */
+        public ExcelColumnMapping<E, Ex, Im> aliases(String... aliases) {
+            this.aliases = aliases == null ? null : Collections.unmodifiableList(Arrays.asList(aliases.clone()));
+            return this;
+        }
+
+        /**
+         * 导入时该列的表头匹配选项，不指定时使用实体的默认选项
+         */
+        public ExcelColumnMapping<E, Ex, Im> headMatch(HeadMatch... headMatch) {
+            this.headMatch = toHeadMatch(headMatch);
+            return this;
+        }
+
         public ExcelColumnMapping<E, Ex, Im> dict(String dict) {
             this.dict = dict;
             return this;
@@ -151,6 +258,14 @@ public class ExcelEntity<E> {
             return this;
         }
 
+        /**
+         * 导入时按标签查找字典项忽略大小写，使用字典值时不生效
+         */
+        public ExcelColumnMapping<E, Ex, Im> dictIgnoreCase() {
+            this.dictIgnoreCase = true;
+            return this;
+        }
+
         public ExcelColumnMapping<E, Ex, Im> comment(String comment) {
             this.comment = comment;
             return this;
@@ -228,8 +343,12 @@ public class ExcelEntity<E> {
             ExcelColumnMapping<E, T, Im> mapping = new ExcelColumnMapping<>();
             mapping.parent = this.parent;
             mapping.headName = this.headName;
+            mapping.groups = this.groups;
+            mapping.aliases = this.aliases;
+            mapping.headMatch = this.headMatch;
             mapping.dict = this.dict;
             mapping.dictUsedValue = this.dictUsedValue;
+            mapping.dictIgnoreCase = this.dictIgnoreCase;
             mapping.comment = this.comment;
 
             mapping.excelColumnExportMapping = new ExcelColumnExportMapping<>();
@@ -249,8 +368,12 @@ public class ExcelEntity<E> {
             ExcelColumnMapping<E, Ex, T> mapping = new ExcelColumnMapping<>();
             mapping.parent = this.parent;
             mapping.headName = this.headName;
+            mapping.groups = this.groups;
+            mapping.aliases = this.aliases;
+            mapping.headMatch = this.headMatch;
             mapping.dict = this.dict;
             mapping.dictUsedValue = this.dictUsedValue;
+            mapping.dictIgnoreCase = this.dictIgnoreCase;
             mapping.comment = this.comment;
 
             mapping.excelColumnImportMapping = new ExcelColumnImportMapping<>();
@@ -313,6 +436,18 @@ public class ExcelEntity<E> {
             return this.parent.headName(headName);
         }
 
+        public ExcelColumnMapping<E, ?, ?> group(String... groups) {
+            return this.parent.group(groups);
+        }
+
+        public ExcelColumnMapping<E, ?, ?> aliases(String... aliases) {
+            return this.parent.aliases(aliases);
+        }
+
+        public ExcelColumnMapping<E, ?, ?> headMatch(HeadMatch... headMatch) {
+            return this.parent.headMatch(headMatch);
+        }
+
         public ExcelColumnMapping<E, ?, ?> dict(String dict) {
             return this.parent.dict(dict);
         }
@@ -325,6 +460,10 @@ public class ExcelEntity<E> {
             return this.parent.usedLabel();
         }
 
+        public ExcelColumnMapping<E, ?, ?> dictIgnoreCase() {
+            return this.parent.dictIgnoreCase();
+        }
+
         public ExcelColumnMapping<E, ?, ?> comment(String comment) {
             return this.parent.comment(comment);
         }
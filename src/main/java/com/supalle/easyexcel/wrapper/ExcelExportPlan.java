@@ -0,0 +1,306 @@
+package com.supalle.easyexcel.wrapper;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 导出计划，由{@link ExcelEntity#compileExportPlan(Function)}编译得到，编译后不可变。
+ * 每列的取值、格式化、跳过、字典翻译和裁剪在编译时组合为一个{@link ColumnWriter}，
+ * 逐行导出时只需按列调用一次；有按需查找的字典列时按批先取值，再统一查找字典项后翻译。
+ */
+@Getter
+public class ExcelExportPlan<E> {
+
+    private final ExcelEntity<E> excelEntity;
+    private final List<ExcelEntity.ExcelColumnMapping> excelColumnMappings;
+    private final Map<String, Dict> dictMap;
+    private final ColumnWriter<E>[] columnWriters;
+    @Getter(AccessLevel.NONE)
+    private final List<DictPrefetch> dictPrefetches;
+    @Getter(AccessLevel.NONE)
+    private final MetricsRecorder recorder;
+
+    private ExcelExportPlan(ExcelEntity<E> excelEntity, List<ExcelEntity.ExcelColumnMapping> excelColumnMappings,
+                            Map<String, Dict> dictMap, ColumnWriter<E>[] columnWriters, List<DictPrefetch> dictPrefetches,
+                            MetricsRecorder recorder) {
+        this.excelEntity = excelEntity;
+        this.excelColumnMappings = excelColumnMappings;
+        this.dictMap = dictMap;
+        this.columnWriters = columnWriters;
+        this.dictPrefetches = dictPrefetches;
+        this.recorder = recorder;
+    }
+
+    public int getColumnCount() {
+        return columnWriters.length;
+    }
+
+    /**
+     * 将实体转换为一行单元格值，写入到长度为列数的cellValues中
+     */
+    public void writeRow(E entity, List<Object> cellValues) {
+        if (recorder == null) {
+            writeColumns(entity, cellValues);
+            return;
+        }
+        try {
+            writeColumns(entity, cellValues);
+        } catch (RuntimeException e) {
+            recorder.errorRow();
+            throw e;
+        }
+        if (entity == null) {
+            recorder.skippedRow();
+        } else {
+            recorder.row();
+        }
+    }
+
+    /**
+     * 是否有按需查找的字典列，有时应按批调用{@link #writeRows(List, List)}
+     */
+    public boolean hasLazyDicts() {
+        return !dictPrefetches.isEmpty();
+    }
+
+    /**
+     * 将一批实体转换为行，cellRows中每行的长度为列数且不少于实体数。
+     * 有按需查找的字典列时先对整批取值与格式化，每个字典一次查找缓存中没有的字典项，再对取到的值进行字典翻译，每行的取值只进行一次
+     */
+    @SuppressWarnings("unchecked")
+    public void writeRows(List<? extends E> entities, List<List<Object>> cellRows) {
+        if (dictPrefetches.isEmpty()) {
+            for (int i = 0; i < entities.size(); i++) {
+                writeRow(entities.get(i), cellRows.get(i));
+            }
+            return;
+        }
+        for (int i = 0; i < entities.size(); i++) {
+            E entity = entities.get(i);
+            List<Object> cellValues = cellRows.get(i);
+            if (entity == null) {
+                Collections.fill(cellValues, null);
+                continue;
+            }
+            try {
+                for (int c = 0; c < columnWriters.length; c++) {
+                    cellValues.set(c, ((Column<E>) columnWriters[c]).source.apply(entity));
+                }
+            } catch (RuntimeException e) {
+                if (recorder != null) {
+                    recorder.errorRow();
+                }
+                throw e;
+            }
+        }
+        long start = recorder == null ? 0L : System.nanoTime();
+        for (DictPrefetch dictPrefetch : dictPrefetches) {
+            dictPrefetch.prefetch(entities, cellRows);
+        }
+        if (recorder != null) {
+            recorder.add(ExcelMetrics.Stage.DICT, System.nanoTime() - start);
+        }
+        for (int i = 0; i < entities.size(); i++) {
+            if (entities.get(i) == null) {
+                if (recorder != null) {
+                    recorder.skippedRow();
+                }
+                continue;
+            }
+            List<Object> cellValues = cellRows.get(i);
+            try {
+                for (int c = 0; c < columnWriters.length; c++) {
+                    Function<Object, Object> post = ((Column<E>) columnWriters[c]).post;
+                    if (post != null) {
+                        cellValues.set(c, post.apply(cellValues.get(c)));
+                    }
+                }
+            } catch (RuntimeException e) {
+                if (recorder != null) {
+                    recorder.errorRow();
+                }
+                throw e;
+            }
+            if (recorder != null) {
+                recorder.row();
+            }
+        }
+    }
+
+    private void writeColumns(E entity, List<Object> cellValues) {
+        ColumnWriter<E>[] columnWriters = this.columnWriters;
+        if (entity == null) {
+            Collections.fill(cellValues, null);
+            return;
+        }
+        for (int i = 0; i < columnWriters.length; i++) {
+            cellValues.set(i, columnWriters[i].write(entity));
+        }
+    }
+
+    static <E> ExcelExportPlan<E> compile(ExcelEntity<E> excelEntity, Function<String, Dict> dictSupplier) {
+        return compile(excelEntity, dictSupplier, null);
+    }
+
+    /**
+     * recorder不为空时编译出带分阶段计时的导出计划
+     */
+    @SuppressWarnings("unchecked")
+    static <E> ExcelExportPlan<E> compile(ExcelEntity<E> excelEntity, Function<String, Dict> dictSupplier, MetricsRecorder recorder) {
+        List<ExcelEntity.ExcelColumnMapping> excelColumnMappings = excelEntity.getExcelColumnMappings() == null
+                ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(excelEntity.getExcelColumnMappings()));
+
+        Map<String, Dict> dictMap = new HashMap<>();
+        ColumnWriter<E>[] columnWriters = new ColumnWriter[excelColumnMappings.size()];
+        List<DictPrefetch> dictPrefetches = new ArrayList<>();
+        for (int i = 0; i < columnWriters.length; i++) {
+            ExcelEntity.ExcelColumnMapping<E, Object, ?> mapping = excelColumnMappings.get(i);
+            // 查找字典
+            String dictName = mapping.getDict();
+            if (dictName != null && !dictMap.containsKey(dictName)) {
+                if (dictSupplier == null) {
+                    throw new ExcelException(String.format("没有提供字典'%s'的获取途径", dictName));
+                }
+                Dict dict = dictSupplier.apply(dictName);
+                if (dict == null) {
+                    throw new ExcelException(String.format("字典'%s'没有提供", dictName));
+                }
+                dictMap.put(dictName, dict);
+            }
+            Dict dict = dictName == null ? null : dictMap.get(dictName);
+            Function<String, Dict.DictItem> itemLookup = null;
+            if (dict != null) {
+                if (dict.isLazy()) {
+                    DictLookup dictLookup = dict.getValueLookup();
+                    itemLookup = dictLookup::get;
+                    dictPrefetches.add(new DictPrefetch(i, dictLookup));
+                } else {
+                    itemLookup = dict.getValueIndex()::get;
+                }
+            }
+            columnWriters[i] = compileColumnWriter(mapping, dict, itemLookup, recorder);
+        }
+        return new ExcelExportPlan<>(excelEntity, excelColumnMappings, Collections.unmodifiableMap(dictMap), columnWriters, dictPrefetches, recorder);
+    }
+
+    private static <E> ColumnWriter<E> compileColumnWriter(ExcelEntity.ExcelColumnMapping<E, Object, ?> mapping,
+                                                           Dict dict, Function<String, Dict.DictItem> itemLookup, MetricsRecorder recorder) {
+        ExcelEntity.ExcelColumnExportMapping<E, Object> exportMapping = mapping.getExcelColumnExportMapping();
+        Function<E, Object> getting = recorder == null ? exportMapping.getGetting()
+                : recorder.timedFunction(ExcelMetrics.Stage.GETTING, exportMapping.getGetting());
+        Function<Object, String> formatter = recorder == null ? exportMapping.getFormatter()
+                : recorder.timedFunction(ExcelMetrics.Stage.FORMATTING, exportMapping.getFormatter());
+
+        // 取值与格式化
+        Function<E, Object> source;
+        if (getting == null) {
+            source = formatter == null ? e -> null : e -> formatter.apply(null);
+        } else {
+            source = formatter == null ? getting : getting.andThen(formatter);
+        }
+
+        // 字典翻译与裁剪
+        Function<Object, Object> post = null;
+        if (dict != null) {
+            post = dictTranslator(mapping, dict, itemLookup);
+            if (recorder != null) {
+                post = recorder.timedFunction(ExcelMetrics.Stage.DICT, post);
+            }
+        }
+        if (exportMapping.isAutoTrim()) {
+            Function<Object, Object> trim = v -> v instanceof String ? ((String) v).trim() : v;
+            post = post == null ? trim : post.andThen(trim);
+        }
+
+        // 跳过空值，跳过时不再进行字典翻译与裁剪
+        if (exportMapping.isJumpEmpty()) {
+            Function<Object, Object> next = post;
+            post = v -> v == null || v.toString().trim().isEmpty() ? null : next == null ? v : next.apply(v);
+        } else if (exportMapping.isJumpNull() && post != null) {
+            Function<Object, Object> next = post;
+            post = v -> v == null ? null : next.apply(v);
+        }
+
+        return new Column<>(source, post);
+    }
+
+    /**
+     * 取值为文本时直接按值索引查找；其它类型(未经格式化的Integer、枚举等)先按类型化的索引查找，查不到再转为文本查找
+     */
+    private static Function<Object, Object> dictTranslator(ExcelEntity.ExcelColumnMapping<?, ?, ?> mapping, Dict dict, Function<String, Dict.DictItem> itemLookup) {
+        String headName = mapping.getHeadName();
+        String dictName = mapping.getDict();
+        boolean dictUsedValue = mapping.isDictUsedValue();
+        ExcelEntity.ExcelColumnExportMapping<?, ?> exportMapping = mapping.getExcelColumnExportMapping();
+        Class<?> type = exportMapping.getType();
+        Dict.TypedIndex<?> typedIndex = exportMapping.getFormatter() == null && type != null && type != String.class && type != Object.class
+                ? dict.getValueIndex(type) : null;
+        return cellValue -> {
+            Dict.DictItem dictItem;
+            if (cellValue instanceof String) {
+                dictItem = itemLookup.apply((String) cellValue);
+            } else {
+                dictItem = typedIndex == null ? null : typedIndex.get(cellValue);
+                if (dictItem == null) {
+                    dictItem = itemLookup.apply(String.valueOf(cellValue));
+                }
+            }
+            if (dictItem == null) {
+                throw new ExcelException(String.format("列'%s'的字典值'%s'超出约定范围，%s", headName, cellValue, dict.describeRange(dictName)));
+            }
+            return dictUsedValue ? cellValue : dictItem.getLabel();
+        };
+    }
+
+    /**
+     * 一列的取值与格式化(source)，以及之后的字典翻译、裁剪与跳过(post，可能为null)
+     */
+    private static final class Column<E> implements ColumnWriter<E> {
+        private final Function<E, Object> source;
+        private final Function<Object, Object> post;
+
+        Column(Function<E, Object> source, Function<Object, Object> post) {
+            this.source = source;
+            this.post = post;
+        }
+
+        @Override
+        public Object write(E entity) {
+            Object value = source.apply(entity);
+            return post == null ? value : post.apply(value);
+        }
+    }
+
+    /**
+     * 按需查找的字典列，从已取到的整批值中收集字典值
+     */
+    private static final class DictPrefetch {
+        private final int columnIndex;
+        private final DictLookup lookup;
+
+        DictPrefetch(int columnIndex, DictLookup lookup) {
+            this.columnIndex = columnIndex;
+            this.lookup = lookup;
+        }
+
+        void prefetch(List<?> entities, List<List<Object>> cellRows) {
+            List<String> values = new ArrayList<>(entities.size());
+            for (int i = 0; i < entities.size(); i++) {
+                Object value = entities.get(i) == null ? null : cellRows.get(i).get(columnIndex);
+                if (value != null) {
+                    values.add(String.valueOf(value));
+                }
+            }
+            lookup.prefetch(values);
+        }
+    }
+
+    @FunctionalInterface
+    public interface ColumnWriter<E> {
+        Object write(E entity);
+    }
+
+}
@@ -2,36 +2,61 @@ package com.supalle.easyexcel.wrapper;
 
 import com.alibaba.excel.EasyExcel;
 import com.alibaba.excel.ExcelWriter;
+import com.alibaba.excel.write.builder.ExcelWriterBuilder;
 import com.alibaba.excel.write.builder.ExcelWriterSheetBuilder;
 import com.alibaba.excel.write.handler.AbstractRowWriteHandler;
+import com.alibaba.excel.write.handler.AbstractSheetWriteHandler;
+import com.alibaba.excel.write.handler.WriteHandler;
 import com.alibaba.excel.write.metadata.WriteSheet;
 import com.alibaba.excel.write.metadata.holder.WriteSheetHolder;
 import com.alibaba.excel.write.metadata.holder.WriteTableHolder;
+import com.alibaba.excel.write.metadata.holder.WriteWorkbookHolder;
 import com.alibaba.excel.write.style.HorizontalCellStyleStrategy;
+import lombok.AccessLevel;
 import lombok.Getter;
-import org.apache.poi.ss.usermodel.Comment;
-import org.apache.poi.ss.usermodel.Drawing;
-import org.apache.poi.xssf.usermodel.XSSFClientAnchor;
-import org.apache.poi.xssf.usermodel.XSSFRichTextString;
-import org.springframework.util.CollectionUtils;
-
-import java.io.File;
-import java.io.OutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
-import java.util.stream.Collectors;
-
-import static com.supalle.easyexcel.wrapper.Common.isNotEmpty;
+import java.util.stream.Stream;
 
+@Slf4j
 @Getter
 public class ExcelExporter {
 
+    /**
+     * 默认每批转换并写出的行数
+     */
+    public static final int DEFAULT_FLUSH_SIZE = 1000;
+    /**
+     * 表头批注中默认最多列出的字典项数
+     */
+    public static final int DEFAULT_COMMENT_DICT_ITEMS = 100;
+
     private final List<Sheet> sheets = new ArrayList<>();
 
     private File outFile;
     private OutputStream outputStream;
+    private File templateFile;
+    private InputStream templateInputStream;
+    private ExcelFormat format;
+    private Charset charset = StandardCharsets.UTF_8;
     private Function<String, Dict> defaultDictSupplier;
+    private int commentDictItems = DEFAULT_COMMENT_DICT_ITEMS;
+    private String dictLegendSheet;
+    // 实体映射 -> 渲染好的表头批注，共用同一实体映射的工作表复用
+    @Getter(AccessLevel.NONE)
+    private final Map<ExcelEntity, List<HeadComments>> headCommentsCache = new IdentityHashMap<>();
     private boolean autoCloseStream = true;
+    private int parallelism = 1;
+    private Executor executor;
+    private final List<ExcelMetricsListener> metricsListeners = new ArrayList<>();
 
     public static ExcelExporter create() {
         return new ExcelExporter();
@@ -47,16 +72,100 @@ public class ExcelExporter {
         return this;
     }
 
+    /**
+     * 以模板填充的方式导出：按顺序把各工作表的数据填充到模板的第几张工作表中，保留模板的样式、公式与批注。
+     * 数据行填充到模板中含有{.列名}占位符的行，每次填充flushSize行；{变量名}占位符由{@link Sheet#variable(String, Object)}填充。
+     * 填充区域下方的模板内容会被数据行覆盖，合计等内容应放在填充区域上方或其它工作表中
+     */
+    public ExcelExporter template(File templateFile) {
+        this.templateFile = templateFile;
+        this.templateInputStream = null;
+        return this;
+    }
+
+    /**
+     * 以模板填充的方式导出，模板流由调用方关闭，见{@link #template(File)}
+     */
+    public ExcelExporter template(InputStream templateInputStream) {
+        this.templateInputStream = templateInputStream;
+        this.templateFile = null;
+        return this;
+    }
+
+    /**
+     * 文件格式，不指定时按文件扩展名判断，判断不了的(包括写出到流)为XLSX。CSV/TSV只能导出一张工作表
+     */
+    public ExcelExporter format(ExcelFormat format) {
+        this.format = format;
+        return this;
+    }
+
+    /**
+     * CSV/TSV的字符集，默认UTF-8
+     */
+    public ExcelExporter charset(Charset charset) {
+        this.charset = charset;
+        return this;
+    }
+
+    public boolean isTemplate() {
+        return templateFile != null || templateInputStream != null;
+    }
+
     public ExcelExporter defaultDictSupplier(Function<String, Dict> defaultDictSupplier) {
         this.defaultDictSupplier = defaultDictSupplier;
         return this;
     }
 
+    /**
+     * 表头批注中最多列出的字典项数，超出的部分只注明总数，不大于0时不列出字典项；按需查找的字典不列出字典项
+     */
+    public ExcelExporter commentDictItems(int commentDictItems) {
+        this.commentDictItems = commentDictItems;
+        return this;
+    }
+
+    /**
+     * 把用到的字典集中写入一张名为sheetName的隐藏工作表(如"legend")，表头批注只注明字典名称，不再逐列列出字典项；
+     * 为空时不写出。模板填充与CSV/TSV不写出
+     */
+    public ExcelExporter dictLegend(String sheetName) {
+        this.dictLegendSheet = sheetName;
+        return this;
+    }
+
     public ExcelExporter autoCloseStream(boolean autoCloseStream) {
         this.autoCloseStream = autoCloseStream;
         return this;
     }
 
+    /**
+     * 大于1时，多张工作表的数据在多个线程上并行转换，写出仍由调用线程按顺序完成。
+     * 注意数据源会在转换线程上被迭代，不要使用绑定在调用线程上的数据源(如事务内的游标)。
+     */
+    public ExcelExporter parallelism(int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * 并行转换使用的线程池，需要能同时运行parallelism个任务；不指定时每次导出临时创建
+     */
+    public ExcelExporter executor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * 注册统计监听器，导出结束后回调各工作表的行数、耗时、各阶段耗时与写出字节数
+     */
+    public ExcelExporter metricsListener(ExcelMetricsListener metricsListener) {
+        if (metricsListener != null) {
+            this.metricsListeners.add(metricsListener);
+        }
+        return this;
+    }
+
     public <T> Sheet<T> sheet(String sheetName) {
         return sheet(sheetName, null);
     }
@@ -81,202 +190,458 @@ public class ExcelExporter {
             throw new ExcelException("请添加要读取的工作表(Sheet)。");
         }
         for (int i = 0; i < this.sheets.size(); i++) {
-            Sheet sheet = this.sheets.get(i);
-            if (sheet.getExcelEntity() == null) {
-                throw new ExcelException(String.format("第%d张工作表的实体映射为Null", i));
-            }
-            List<ExcelEntity.ExcelColumnMapping> excelColumnMappings = sheet.getExcelEntity().getExcelColumnMappings();
-            if (excelColumnMappings != null && !excelColumnMappings.isEmpty()) {
-                for (ExcelEntity.ExcelColumnMapping excelColumnMapping : excelColumnMappings) {
-                    if (excelColumnMapping.getExcelColumnExportMapping() == null) {
-                        throw new ExcelException(String.format("第%d张工作表的映射字段%s缺少导入getting操作", i, excelColumnMapping.getHeadName()));
-                    }
-                }
-            }
+            validate(i, this.sheets.get(i));
+        }
+        ExcelFormat format = resolveFormat();
+        boolean text = format != null && format.isText();
+        if (text && this.sheets.size() > 1) {
+            throw new ExcelException(String.format("%s只能导出一张工作表", format));
+        }
+        if (text && isTemplate()) {
+            throw new ExcelException(String.format("%s不支持模板填充", format));
         }
 
+        List<MetricsRecorder> recorders = null;
+        if (!this.metricsListeners.isEmpty()) {
+            recorders = new ArrayList<>(this.sheets.size());
+            for (int i = 0; i < this.sheets.size(); i++) {
+                recorders.add(new MetricsRecorder(ExcelMetrics.Operation.EXPORT, i, this.sheets.get(i).getSheetName()));
+            }
+        }
+        long startNanos = System.nanoTime();
+        MetricsRecorder.CountingOutputStream countingStream = null;
+        Throwable error = null;
         ExcelWriter excelWriter = null;
         try {
-
-            if (outputStream != null) {
-                if (autoCloseStream) {
-                    excelWriter = EasyExcel.write(outputStream).autoCloseStream(true).build();
-                } else {
-                    excelWriter = EasyExcel.write(outputStream).autoCloseStream(false).build();
-                }
-
+            if (outputStream != null && recorders != null) {
+                countingStream = new MetricsRecorder.CountingOutputStream(outputStream);
+            }
+            if (text) {
+                doWriteText(format, countingStream != null ? countingStream : outputStream, recorders);
             } else {
-                if (outFile == null) {
-                    throw new ExcelException("需要指定导入的Excel文件或者文件流。");
+                excelWriter = buildExcelWriter(countingStream != null ? countingStream : outputStream);
+                doWrite(excelWriter, recorders);
+            }
+        } catch (Throwable e) {
+            error = e;
+            throw e;
+        } finally {
+            try {
+                // 千万别忘记finish 会帮忙关闭流
+                if (excelWriter != null) {
+                    excelWriter.finish();
                 }
-
-                if (!outFile.exists()) {
-                    throw new ExcelException("指定导入的Excel文件不存在 " + outFile.getName());
+            } finally {
+                if (recorders != null) {
+                    long bytes = countingStream != null ? countingStream.getCount() : outputStream == null && outFile != null ? outFile.length() : 0L;
+                    List<ExcelMetrics.SheetMetrics> sheetMetrics = new ArrayList<>(recorders.size());
+                    recorders.forEach(recorder -> sheetMetrics.add(recorder.snapshot()));
+                    MetricsRecorder.complete(this.metricsListeners,
+                            new ExcelMetrics(ExcelMetrics.Operation.EXPORT, sheetMetrics, bytes, System.nanoTime() - startNanos, error));
                 }
+            }
+        }
+    }
 
-                if (outFile.isDirectory()) {
-                    throw new ExcelException("无法导入一个文件夹 " + outFile.getName());
+    /**
+     * 以推送方式逐批写出，适用于数据边产生边写出的场景(如导入时写出出错的行)，用完必须{@link Session#close()}。
+     * 工作表可以在打开后再添加，第一次写入时才编译导出计划并按写入顺序排列；不支持并行与统计监听
+     */
+    public Session open() {
+        if (isTemplate()) {
+            throw new ExcelException("推送式写出不支持模板填充");
+        }
+        ExcelFormat format = resolveFormat();
+        if (format != null && format.isText()) {
+            throw new ExcelException(String.format("推送式写出不支持%s", format));
+        }
+        return new Session(buildExcelWriter(outputStream));
+    }
+
+    private void validate(int i, Sheet sheet) {
+        if (sheet.flushSize < 1) {
+            sheet.flushSize = 1;
+        }
+        if (sheet.getExcelEntity() == null) {
+            throw new ExcelException(String.format("第%d张工作表的实体映射为Null", i));
+        }
+        List<ExcelEntity.ExcelColumnMapping> excelColumnMappings = sheet.getExcelEntity().getExcelColumnMappings();
+        if (excelColumnMappings != null && !excelColumnMappings.isEmpty()) {
+            for (ExcelEntity.ExcelColumnMapping excelColumnMapping : excelColumnMappings) {
+                if (excelColumnMapping.getExcelColumnExportMapping() == null) {
+                    throw new ExcelException(String.format("第%d张工作表的映射字段%s缺少导入getting操作", i, excelColumnMapping.getHeadName()));
                 }
-                excelWriter = EasyExcel.write(outFile).autoCloseStream(true).build();
             }
-            doWrite(excelWriter);
-        } finally {
-            // 千万别忘记finish 会帮忙关闭流
-            if (excelWriter != null) {
-                excelWriter.finish();
+        }
+        if (!sheet.variables.isEmpty() && !isTemplate()) {
+            throw new ExcelException(String.format("第%d张工作表设置了填充变量，只有模板导出支持填充变量", i));
+        }
+    }
+
+    private ExcelWriter buildExcelWriter(OutputStream outputStream) {
+        ExcelWriterBuilder excelWriterBuilder;
+        if (outputStream != null) {
+            excelWriterBuilder = EasyExcel.write(outputStream).autoCloseStream(autoCloseStream);
+        } else {
+            checkOutFile();
+            excelWriterBuilder = EasyExcel.write(outFile).autoCloseStream(true);
+        }
+        ExcelFormat format = resolveFormat();
+        if (format != null && !format.isText()) {
+            excelWriterBuilder.excelType(format.getExcelType());
+        }
+        return withTemplate(excelWriterBuilder).build();
+    }
+
+    private void checkOutFile() {
+        if (outFile == null) {
+            throw new ExcelException("需要指定导入的Excel文件或者文件流。");
+        }
+
+        if (!outFile.exists()) {
+            throw new ExcelException("指定导入的Excel文件不存在 " + outFile.getName());
+        }
+
+        if (outFile.isDirectory()) {
+            throw new ExcelException("无法导入一个文件夹 " + outFile.getName());
+        }
+    }
+
+    private ExcelFormat resolveFormat() {
+        if (format != null) {
+            return format;
+        }
+        return outputStream == null && outFile != null ? ExcelFormat.ofFileName(outFile.getName()) : null;
+    }
+
+    private ExcelWriterBuilder withTemplate(ExcelWriterBuilder excelWriterBuilder) {
+        if (templateFile != null) {
+            if (!templateFile.isFile()) {
+                throw new ExcelException("指定的模板文件不存在 " + templateFile.getName());
             }
+            return excelWriterBuilder.withTemplate(templateFile);
         }
+        if (templateInputStream != null) {
+            return excelWriterBuilder.withTemplate(templateInputStream);
+        }
+        return excelWriterBuilder;
     }
 
     // TODO 未完善-韦炳奇
-    private void doWrite(ExcelWriter excelWriter) {
+    private void doWrite(ExcelWriter excelWriter, List<MetricsRecorder> recorders) {
+        // 共用同一实体映射与字典来源的工作表(如copy出的)只编译一次导出计划；采集统计时每张工作表单独编译带计时的计划
+        Map<ExcelEntity, Map<Function<String, Dict>, ExcelExportPlan>> exportPlanCache = new IdentityHashMap<>();
+        List<ExcelExportPlan> exportPlans = new ArrayList<>(this.sheets.size());
+        List<WriteSheet> writeSheets = new ArrayList<>(this.sheets.size());
+        List<Map<String, Integer>> fillVariables = new ArrayList<>(this.sheets.size());
+        Workbook template = isTemplate() ? excelWriter.writeContext().writeWorkbookHolder().getCachedWorkbook() : null;
         int sheetNo = 0;
         for (Sheet sheet : this.sheets) {
+            ExcelEntity excelEntity = sheet.getExcelEntity();
+            Function<String, Dict> dictSupplier = sheet.getDictSupplier() == null ? sheet.getParent().getDefaultDictSupplier() : sheet.getDictSupplier();
+            ExcelExportPlan exportPlan = recorders != null
+                    ? ExcelExportPlan.compile(excelEntity, dictSupplier, recorders.get(sheetNo))
+                    : exportPlanCache.computeIfAbsent(excelEntity, k -> new IdentityHashMap<>())
+                    .computeIfAbsent(dictSupplier, k -> excelEntity.compileExportPlan(dictSupplier));
+            exportPlans.add(exportPlan);
+            WriteSheet writeSheet = buildWriteSheet(sheetNo++, sheet, exportPlan);
+            writeSheets.add(writeSheet);
+            if (isTemplate()) {
+                // 先检查模板中的占位符，EasyExcel在找不到占位符时只会抛出空指针
+                TemplatePlaceholders.scan(template, writeSheet.getSheetNo()).check(writeSheet.getSheetNo(), !sheet.variables.isEmpty());
+                fillVariables.add(fillVariables(exportPlan));
+                if (!sheet.variables.isEmpty()) {
+                    excelWriter.fill(sheet.variables, writeSheet);
+                }
+            } else {
+                fillVariables.add(null);
+            }
+        }
 
-            Map<String, Dict> dictMap = new HashMap<>();
-            Map<String, Map<String, Dict.DictItem>> dictItemMap = new HashMap<>();
+        if (this.parallelism > 1 && this.sheets.size() > 1) {
+            doParallelWrite(excelWriter, writeSheets, exportPlans, fillVariables, recorders);
+        } else {
+            doSerialWrite(excelWriter, writeSheets, exportPlans, fillVariables, recorders);
+        }
+        if (!isTemplate()) {
+            writeDictLegend(excelWriter, exportPlans);
+        }
+    }
 
-            ExcelEntity excelEntity = sheet.getExcelEntity();
-            HorizontalCellStyleStrategy horizontalCellStyleStrategy = excelEntity.getHorizontalCellStyleStrategy();
-            List<ExcelEntity.ExcelColumnMapping> excelColumnMappings = excelEntity.getExcelColumnMappings();
+    private void doSerialWrite(ExcelWriter excelWriter, List<WriteSheet> writeSheets, List<ExcelExportPlan> exportPlans,
+                               List<Map<String, Integer>> fillVariables, List<MetricsRecorder> recorders) {
+        for (int i = 0; i < this.sheets.size(); i++) {
+            Sheet sheet = this.sheets.get(i);
+            ExcelExportPlan exportPlan = exportPlans.get(i);
+            WriteSheet writeSheet = writeSheets.get(i);
+            MetricsRecorder recorder = recorders == null ? null : recorders.get(i);
+            if (recorder != null) {
+                recorder.start(System.nanoTime());
+            }
 
-            List<List<String>> headList = new ArrayList<>();
-            for (ExcelEntity.ExcelColumnMapping mapping : excelColumnMappings) {
-                // 查找列索引
-                String headName = String.valueOf(mapping.getHeadName()).trim();
-                headList.add(Collections.singletonList(headName));
+            // 分批转换并写出，避免一次性持有全部行数据；批次缓冲区在每次写出后复用
+            Iterator<?> iterator = dataIterator(sheet);
+            RowBatch batch = new RowBatch(sheet.getFlushSize(), exportPlan.getColumnCount());
+            boolean written = false;
+            do {
+                batch.fill(iterator, exportPlan);
+                if (batch.size > 0 || !written) {
+                    write(excelWriter, batch, writeSheet, fillVariables.get(i), recorder);
+                    written = true;
+                }
+            } while (batch.isFull());
+            sheetComplete(recorder);
+        }
+    }
 
-                // 查找字典
+    /**
+     * 在最后写出隐藏的字典说明工作表，每个字典项一行；按需查找的字典只写出一行说明
+     */
+    private void writeDictLegend(ExcelWriter excelWriter, List<ExcelExportPlan> exportPlans) {
+        if (dictLegendSheet == null) {
+            return;
+        }
+        Map<String, Dict> dicts = new LinkedHashMap<>();
+        for (ExcelExportPlan<?> exportPlan : exportPlans) {
+            for (ExcelEntity.ExcelColumnMapping mapping : exportPlan.getExcelColumnMappings()) {
                 String dictName = mapping.getDict();
                 if (dictName != null) {
-                    Function<String, Dict> dictSupplier = sheet.getDictSupplier() == null ? sheet.getParent().getDefaultDictSupplier() : sheet.getDictSupplier();
-                    if (Optional.ofNullable(dictSupplier).isPresent()) {
-                        Dict dict = dictSupplier.apply(dictName);
-                        if (dict == null) {
-                            throw new ExcelException(String.format("字典'%s'没有提供", dictName));
-                        }
-                        dictMap.put(dictName, dict);
-                        Map<String, Dict.DictItem> tempDictItemMap = Optional.ofNullable(dict.getDictItems())
-                                .orElseGet(ArrayList::new)
-                                .stream().collect(Collectors.toMap(Dict.DictItem::getValue, e -> e));
-                        dictItemMap.put(dictName, tempDictItemMap);
-                    } else {
-                        throw new ExcelException(String.format("没有提供字典'%s'的获取途径", dictName));
-                    }
+                    dicts.putIfAbsent(dictName, exportPlan.getDictMap().get(dictName));
                 }
             }
-
-            List<List<Object>> data = new LinkedList<>();
-
-            if (!CollectionUtils.isEmpty(sheet.getData())) {
-                for (Object datum : sheet.getData()) {
-                    List<Object> cellValues = new ArrayList<>();
-                    data.add(cellValues);
-                    if (datum == null) {
-                        for (int i = 0; i < excelColumnMappings.size(); i++) {
-                            cellValues.add(null);
-                        }
-                        continue;
+        }
+        List<List<Object>> rows = new ArrayList<>();
+        dicts.forEach((dictName, dict) -> {
+            if (dict.isLazy() || dict.getDictItems() == null) {
+                rows.add(Arrays.asList(dictName, dict.getComment(), null, null, dict.isLazy() ? "按需查找，不列出字典项" : null));
+                return;
+            }
+            for (Dict.DictItem dictItem : dict.getDictItems()) {
+                rows.add(Arrays.asList(dictName, dict.getComment(), dictItem.getValue(), dictItem.getLabel(), dictItem.getComment()));
+            }
+        });
+        List<List<String>> head = new ArrayList<>();
+        for (String headName : new String[]{"字典", "说明", "值", "标签", "备注"}) {
+            head.add(Collections.singletonList(headName));
+        }
+        WriteSheet writeSheet = EasyExcel.writerSheet(exportPlans.size(), dictLegendSheet).head(head)
+                .registerWriteHandler(new AbstractSheetWriteHandler() {
+                    @Override
+                    public void afterSheetCreate(WriteWorkbookHolder writeWorkbookHolder, WriteSheetHolder writeSheetHolder) {
+                        Workbook workbook = writeWorkbookHolder.getWorkbook();
+                        workbook.setSheetHidden(workbook.getSheetIndex(writeSheetHolder.getSheet()), true);
                     }
+                }).build();
+        excelWriter.write(rows, writeSheet);
+    }
 
-                    for (ExcelEntity.ExcelColumnMapping mapping : excelColumnMappings) {
-                        ExcelEntity.ExcelColumnExportMapping excelColumnExportMapping = mapping.getExcelColumnExportMapping();
+    /**
+     * 以CSV/TSV逐批写出唯一的一张工作表：先写出表头，表头路径较短的列在下方重复列名，与Excel表头纵向合并后读回的结果一致。
+     * 文件在写完后关闭，流按autoCloseStream关闭
+     */
+    @SuppressWarnings("unchecked")
+    private void doWriteText(ExcelFormat format, OutputStream outputStream, List<MetricsRecorder> recorders) {
+        Sheet sheet = this.sheets.get(0);
+        ExcelEntity excelEntity = sheet.getExcelEntity();
+        Function<String, Dict> dictSupplier = sheet.getDictSupplier() == null ? getDefaultDictSupplier() : sheet.getDictSupplier();
+        MetricsRecorder recorder = recorders == null ? null : recorders.get(0);
+        ExcelExportPlan exportPlan = recorder != null ? ExcelExportPlan.compile(excelEntity, dictSupplier, recorder) : excelEntity.compileExportPlan(dictSupplier);
+        if (recorder != null) {
+            recorder.start(System.nanoTime());
+        }
 
-                        Function getting = excelColumnExportMapping.getGetting();
-                        Object cellValue = null;
-                        if (getting != null) {
-                            cellValue = getting.apply(datum);
-                        }
-                        Function formatter = excelColumnExportMapping.getFormatter();
-                        if (formatter != null) {
-                            cellValue = formatter.apply(cellValue);
-                        }
+        OutputStream out = outputStream;
+        try {
+            if (out == null) {
+                checkOutFile();
+                out = new FileOutputStream(outFile);
+            }
+            CsvWriter csvWriter = new CsvWriter(new BufferedWriter(new OutputStreamWriter(out, charset), 1 << 16), format.getDelimiter());
+            List<ExcelEntity.ExcelColumnMapping> excelColumnMappings = exportPlan.getExcelColumnMappings();
+            int headRowNumber = excelEntity.getHeadRowNumber();
+            for (int r = 0; r < headRowNumber; r++) {
+                List<String> headRow = new ArrayList<>(excelColumnMappings.size());
+                for (ExcelEntity.ExcelColumnMapping mapping : excelColumnMappings) {
+                    List<String> headPath = mapping.getHeadPath();
+                    headRow.add(headPath.get(Math.min(r, headPath.size() - 1)));
+                }
+                csvWriter.writeRow(headRow);
+            }
 
-                        if (excelColumnExportMapping.isJumpNull() && cellValue == null) {
-                            cellValues.add(null);
-                            continue;
-                        }
-                        if (excelColumnExportMapping.isJumpEmpty() && (cellValue == null || cellValue.toString().trim().isEmpty())) {
-                            cellValues.add(null);
-                            continue;
-                        }
+            Iterator<?> iterator = dataIterator(sheet);
+            RowBatch batch = new RowBatch(sheet.getFlushSize(), exportPlan.getColumnCount());
+            do {
+                batch.fill(iterator, exportPlan);
+                long start = recorder == null ? 0L : System.nanoTime();
+                for (List<Object> row : batch.rows()) {
+                    csvWriter.writeRow(row);
+                }
+                if (recorder != null) {
+                    recorder.add(ExcelMetrics.Stage.IO, System.nanoTime() - start);
+                }
+            } while (batch.isFull());
+            csvWriter.flush();
+        } catch (IOException e) {
+            throw new ExcelException("写出文件失败", e);
+        } finally {
+            if (out != null && (outputStream == null || autoCloseStream)) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    log.warn("关闭文件流失败", e);
+                }
+            }
+        }
+        sheetComplete(recorder);
+    }
 
-                        String dictName = mapping.getDict();
-                        if (dictName != null) {
-                            Map<String, Dict.DictItem> itemMap = dictItemMap.get(dictName);
-                            Dict.DictItem dictItem = null;
-                            if ((dictItem = itemMap.get(String.valueOf(cellValue))) == null) {
-                                Dict dict = dictMap.get(dictName);
-                                throw new ExcelException(String.format("列'%s'的字典值'%s'超出约定范围，可用字典'%s:%s'只包含%s", mapping.getHeadName(), cellValue, dictName, dict.getComment(), dict.getDictItems().toString()));
-                            }
-                            if (!mapping.isDictUsedValue()) {
-                                cellValue = dictItem.getLabel();
-                            }
-                        }
+    /**
+     * 各工作表的数据在工作线程上转换，转换好的批次由当前线程按工作表顺序依次写出
+     */
+    private void doParallelWrite(ExcelWriter excelWriter, List<WriteSheet> writeSheets, List<ExcelExportPlan> exportPlans,
+                                 List<Map<String, Integer>> fillVariables, List<MetricsRecorder> recorders) {
+        ExecutorService ownedExecutor = null;
+        Executor executor = this.executor;
+        if (executor == null) {
+            AtomicInteger threadNo = new AtomicInteger();
+            ownedExecutor = Executors.newFixedThreadPool(this.parallelism, r -> {
+                Thread thread = new Thread(r, "excel-exporter-" + threadNo.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor = ownedExecutor;
+        }
 
-                        if (excelColumnExportMapping.isAutoTrim()) {
-                            if (cellValue instanceof String) {
-                                cellValue = cellValue.toString().trim();
-                            }
-                        }
-                        cellValues.add(cellValue);
+        int sheetCount = this.sheets.size();
+        List<RowBatchPipe> pipes = new ArrayList<>(sheetCount);
+        for (int i = 0; i < sheetCount; i++) {
+            pipes.add(new RowBatchPipe(this.sheets.get(i), exportPlans.get(i)));
+        }
+        try {
+            int submitted = 0;
+            for (int i = 0; i < sheetCount; i++) {
+                // 同时转换的工作表不超过并行度，每张工作表最多缓冲RowBatchPipe.BUFFERS个批次
+                while (submitted < Math.min(sheetCount, i + this.parallelism)) {
+                    if (recorders != null) {
+                        recorders.get(submitted).start(System.nanoTime());
                     }
+                    try {
+                        executor.execute(pipes.get(submitted++));
+                    } catch (RejectedExecutionException e) {
+                        throw new ExcelException("导出线程池拒绝了工作表转换任务", e);
+                    }
+                }
+                RowBatchPipe pipe = pipes.get(i);
+                WriteSheet writeSheet = writeSheets.get(i);
+                MetricsRecorder recorder = recorders == null ? null : recorders.get(i);
+                boolean written = false;
+                RowBatch batch;
+                while ((batch = pipe.take()) != RowBatchPipe.END) {
+                    write(excelWriter, batch, writeSheet, fillVariables.get(i), recorder);
+                    written = true;
+                    pipe.recycle(batch);
                 }
+                if (!written) {
+                    write(excelWriter, new RowBatch(0, 0), writeSheet, fillVariables.get(i), recorder);
+                }
+                sheetComplete(recorder);
+            }
+        } finally {
+            pipes.forEach(RowBatchPipe::cancel);
+            if (ownedExecutor != null) {
+                ownedExecutor.shutdownNow();
             }
+        }
+    }
 
-            ExcelWriterSheetBuilder excelWriterSheetBuilder = EasyExcel.writerSheet(sheetNo, sheet.getSheetName() == null ? "sheet" + sheetNo : sheet.getSheetName())
-                    .head(headList);
-            if (horizontalCellStyleStrategy != null) {
-                excelWriterSheetBuilder = excelWriterSheetBuilder.registerWriteHandler(horizontalCellStyleStrategy);
+    /**
+     * 写出一批行；fillVariables不为空时为模板导出，按列名填充到模板的占位符中
+     */
+    private static void write(ExcelWriter excelWriter, RowBatch batch, WriteSheet writeSheet, Map<String, Integer> fillVariables, MetricsRecorder recorder) {
+        long start = recorder == null ? 0L : System.nanoTime();
+        try {
+            if (fillVariables == null) {
+                excelWriter.write(batch.rows(), writeSheet);
+            } else {
+                excelWriter.fill(batch.fillRows(fillVariables), writeSheet);
             }
-            excelWriterSheetBuilder = excelWriterSheetBuilder.registerWriteHandler(new AbstractRowWriteHandler() {
+        } finally {
+            if (recorder != null) {
+                recorder.add(ExcelMetrics.Stage.IO, System.nanoTime() - start);
+            }
+        }
+    }
 
-                public void afterRowDispose(WriteSheetHolder writeSheetHolder, WriteTableHolder writeTableHolder, Row row,
+    /**
+     * 模板占位符的变量名(列名) -> 列的位置
+     */
+    private static Map<String, Integer> fillVariables(ExcelExportPlan<?> exportPlan) {
+        List<ExcelEntity.ExcelColumnMapping> excelColumnMappings = exportPlan.getExcelColumnMappings();
+        Map<String, Integer> fillVariables = new HashMap<>(excelColumnMappings.size() * 4 / 3 + 1);
+        for (int i = 0; i < excelColumnMappings.size(); i++) {
+            String headName = String.valueOf(excelColumnMappings.get(i).getHeadName()).trim();
+            if (fillVariables.put(headName, i) != null) {
+                throw new ExcelException(String.format("模板填充按列名取值，列名'%s'重复", headName));
+            }
+        }
+        return fillVariables;
+    }
+
+    private void sheetComplete(MetricsRecorder recorder) {
+        if (recorder != null) {
+            recorder.stop(System.nanoTime());
+            MetricsRecorder.sheetComplete(this.metricsListeners, recorder);
+        }
+    }
+
+    private WriteSheet buildWriteSheet(int sheetNo, Sheet sheet, ExcelExportPlan exportPlan) {
+        if (isTemplate()) {
+            // 按顺序填充模板的工作表，表头、样式与批注都以模板为准
+            ExcelWriterSheetBuilder excelWriterSheetBuilder = EasyExcel.writerSheet(sheetNo, sheet.getSheetName());
+            for (Object writeHandler : sheet.getWriteHandlers()) {
+                excelWriterSheetBuilder = excelWriterSheetBuilder.registerWriteHandler((WriteHandler) writeHandler);
+            }
+            return excelWriterSheetBuilder.build();
+        }
+        HorizontalCellStyleStrategy horizontalCellStyleStrategy = exportPlan.getExcelEntity().getHorizontalCellStyleStrategy();
+        List<ExcelEntity.ExcelColumnMapping> excelColumnMappings = exportPlan.getExcelColumnMappings();
+
+        List<List<String>> headList = new ArrayList<>();
+        for (ExcelEntity.ExcelColumnMapping mapping : excelColumnMappings) {
+            // 路径较短的列由EasyExcel补齐并纵向合并，相邻列相同的分组横向合并
+            headList.add(mapping.getHeadPath());
+        }
+
+        ExcelWriterSheetBuilder excelWriterSheetBuilder = EasyExcel.writerSheet(sheetNo, sheet.getSheetName() == null ? "sheet" + sheetNo : sheet.getSheetName())
+                .head(headList);
+        if (horizontalCellStyleStrategy != null) {
+            excelWriterSheetBuilder = excelWriterSheetBuilder.registerWriteHandler(horizontalCellStyleStrategy);
+        }
+        for (Object writeHandler : sheet.getWriteHandlers()) {
+            excelWriterSheetBuilder = excelWriterSheetBuilder.registerWriteHandler((WriteHandler) writeHandler);
+        }
+        HeadComments headComments = HeadComments.of(headCommentsCache.computeIfAbsent(exportPlan.getExcelEntity(), k -> new ArrayList<>()),
+                excelColumnMappings, exportPlan.getDictMap(), commentDictItems, dictLegendSheet);
+        if (!headComments.isEmpty()) {
+            // 多行表头时批注加在最下面一行，即列名所在的行
+            int headRowNumber = exportPlan.getExcelEntity().getHeadRowNumber();
+            excelWriterSheetBuilder = excelWriterSheetBuilder.registerWriteHandler(new AbstractRowWriteHandler() {
+                @Override
+                public void afterRowDispose(WriteSheetHolder writeSheetHolder, WriteTableHolder writeTableHolder, org.apache.poi.ss.usermodel.Row row,
                                             Integer relativeRowIndex, Boolean isHead) {
-                    if (isHead) {
-                        org.apache.poi.ss.usermodel.Sheet sheet = writeSheetHolder.getSheet();
-                        Drawing<?> drawingPatriarch = sheet.createDrawingPatriarch();
-                        int cellIndex = 0;
-                        for (ExcelEntity.ExcelColumnMapping mapping : excelColumnMappings) {
-                            String columnComment = mapping.getComment();
-                            String dict = mapping.getDict();
-                            if (isNotEmpty(columnComment) || isNotEmpty(dict)) {
-
-                                List<String> comments = new ArrayList<>();
-                                if (isNotEmpty(columnComment)) {
-                                    comments.add("注释：" + columnComment);
-                                }
-                                if (isNotEmpty(dict)) {
-                                    Dict d = dictMap.get(dict);
-                                    comments.add(String.format("字典：%s[%s]", d.getComment(), mapping.isDictUsedValue() ? "值" : "标签"));
-                                    List<Dict.DictItem> dictItems = d.getDictItems();
-                                    comments.add("    值:标签    ");
-                                    for (Dict.DictItem dictItem : dictItems) {
-                                        comments.add(String.format("    [%s]:[%s]%s    ", dictItem.getValue(), dictItem.getLabel(), dictItem.getComment() == null ? "" : dictItem.getComment()));
-                                    }
-                                }
-                                // 在第一行 第二列创建一个批注
-                                Comment comment = drawingPatriarch
-                                        .createCellComment(new XSSFClientAnchor(0, 0, 0, 0, (short) 1, 0, (short) 2, 1));
-
-                                // 输入批注信息
-                                comment.setString(new XSSFRichTextString(String.join("\n", comments)));
-                                // 将批注添加到单元格对象中
-                                sheet.getRow(0).getCell(cellIndex).setCellComment(comment);
-                            }
-                            cellIndex++;
-                        }
+                    if (Boolean.TRUE.equals(isHead) && relativeRowIndex != null && relativeRowIndex == headRowNumber - 1) {
+                        headComments.apply(writeSheetHolder.getSheet(), row);
                     }
                 }
-
             });
-            WriteSheet writeSheet = excelWriterSheetBuilder.build();
-            excelWriter.write(data, writeSheet);
-
         }
-
+        return excelWriterSheetBuilder.build();
     }
 
+    private static Iterator<?> dataIterator(Sheet<?> sheet) {
+        Iterable<?> dataSource = sheet.getDataSource();
+        return dataSource == null ? Collections.emptyIterator() : dataSource.iterator();
+    }
 
     private String nextSheetName() {
         return "sheet" + this.sheets.size();
@@ -290,6 +655,13 @@ public class ExcelExporter {
         private ExcelEntity<T> excelEntity;
         private Function<String, Dict> dictSupplier;
         private List<T> data;
+        private Iterable<T> dataSource;
+        // 数据源为迭代器或流，只能被消费一次
+        @Getter(AccessLevel.NONE)
+        private boolean oneShot;
+        private int flushSize = DEFAULT_FLUSH_SIZE;
+        private List<WriteHandler> writeHandlers = new ArrayList<>();
+        private Map<String, Object> variables = new LinkedHashMap<>();
 
         public Sheet<T> parent(ExcelExporter parent) {
             this.parent = parent;
@@ -310,6 +682,11 @@ public class ExcelExporter {
             sheet.excelEntity = excelEntity;
             sheet.dictSupplier = this.dictSupplier;
             sheet.data = (List<E>) this.data;
+            sheet.dataSource = (Iterable<E>) this.dataSource;
+            sheet.oneShot = this.oneShot;
+            sheet.flushSize = this.flushSize;
+            sheet.writeHandlers = this.writeHandlers;
+            sheet.variables = this.variables;
             return sheet;
         }
 
@@ -318,8 +695,67 @@ public class ExcelExporter {
             return this;
         }
 
+        /**
+         * 注册EasyExcel的写出处理器，如单元格样式、批注等
+         */
+        public Sheet<T> writeHandler(WriteHandler writeHandler) {
+            this.writeHandlers.add(writeHandler);
+            return this;
+        }
+
+        /**
+         * 模板导出时填充模板中的{name}占位符，如标题、日期等只出现一次的值
+         */
+        public Sheet<T> variable(String name, Object value) {
+            this.variables.put(name, value);
+            return this;
+        }
+
+        /**
+         * 每转换多少行向Excel写出一次
+         */
+        public Sheet<T> flushSize(int flushSize) {
+            this.flushSize = flushSize;
+            return this;
+        }
+
         public Sheet<T> data(List<T> data) {
             this.data = data;
+            this.dataSource = data;
+            this.oneShot = false;
+            return this;
+        }
+
+        /**
+         * 以迭代器作为数据源，边读取边写出，迭代器只能被消费一次
+         */
+        public Sheet<T> data(Iterator<T> iterator) {
+            this.data = null;
+            this.dataSource = iterator == null ? null : () -> iterator;
+            this.oneShot = iterator != null;
+            return this;
+        }
+
+        /**
+         * 以流作为数据源，边读取边写出，流只能被消费一次，由调用方负责关闭
+         */
+        public Sheet<T> data(Stream<T> stream) {
+            this.data = null;
+            this.dataSource = stream == null ? null : stream::iterator;
+            this.oneShot = stream != null;
+            return this;
+        }
+
+        /**
+         * 以分页查询作为数据源，页码从1开始，返回空页或不足一页时结束
+         */
+        public Sheet<T> data(int pageSize, PageSupplier<T> pageSupplier) {
+            if (pageSize < 1) {
+                throw new ExcelException("分页大小必须大于0");
+            }
+            this.data = null;
+            this.dataSource = pageSupplier == null ? null : () -> new PageIterator<>(pageSupplier, pageSize);
+            this.oneShot = false;
             return this;
         }
 
@@ -327,11 +763,26 @@ public class ExcelExporter {
             return copyAndRename(this.parent.nextSheetName());
         }
 
+        /**
+         * 复制工作表的配置与数据源；迭代器或流只能被消费一次，复制出的工作表需要另行调用data(...)设置数据，否则写出时报错
+         */
         public Sheet<T> copyAndRename(String sheetName) {
             Sheet<T> last = this;
             Sheet<T> sheet = new Sheet<>();
             this.parent.sheets.add(sheet);
-            return sheet.parent(this.parent).sheetName(sheetName).excelEntity(last.getExcelEntity()).dictSupplier(last.getDictSupplier()).data(last.getData());
+            sheet = sheet.parent(this.parent).sheetName(sheetName).excelEntity(last.getExcelEntity()).dictSupplier(last.getDictSupplier()).flushSize(last.getFlushSize());
+            sheet.data = last.getData();
+            if (last.oneShot) {
+                String source = last.getSheetName();
+                sheet.dataSource = () -> {
+                    throw new ExcelException("工作表[" + sheetName + "]复制自[" + source + "]，其迭代器或流数据源只能被消费一次，请为复制出的工作表另行设置data(...)");
+                };
+            } else {
+                sheet.dataSource = last.getDataSource();
+            }
+            sheet.writeHandlers = new ArrayList<>(last.getWriteHandlers());
+            sheet.variables = new LinkedHashMap<>(last.getVariables());
+            return sheet;
         }
 
         public void letItGo() {
@@ -343,4 +794,311 @@ public class ExcelExporter {
         }
     }
 
+    /**
+     * 推送式写出会话，线程安全，写出按调用顺序串行进行
+     */
+    public final class Session implements AutoCloseable {
+        private final ExcelWriter excelWriter;
+        private final Map<Sheet<?>, SessionSheet> sessionSheets = new IdentityHashMap<>();
+        private boolean closed;
+
+        private Session(ExcelWriter excelWriter) {
+            this.excelWriter = excelWriter;
+        }
+
+        /**
+         * 向工作表追加写出一批数据，第一次写入时同时写出表头；rows为空时只写出表头
+         */
+        public synchronized <T> void write(Sheet<T> sheet, List<T> rows) {
+            if (closed) {
+                throw new ExcelException("导出会话已关闭");
+            }
+            append(sheet, rows);
+        }
+
+        /**
+         * 写出尚未写过的工作表的表头并结束写出
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                for (Sheet<?> sheet : sheets) {
+                    if (!sessionSheets.containsKey(sheet)) {
+                        append((Sheet<Object>) sheet, Collections.emptyList());
+                    }
+                }
+                List<ExcelExportPlan> exportPlans = new ArrayList<>(sessionSheets.size());
+                for (Sheet<?> sheet : sheets) {
+                    exportPlans.add(sessionSheets.get(sheet).exportPlan);
+                }
+                writeDictLegend(excelWriter, exportPlans);
+            } finally {
+                excelWriter.finish();
+            }
+        }
+
+        private <T> void append(Sheet<T> sheet, List<T> rows) {
+            SessionSheet sessionSheet = sessionSheets.get(sheet);
+            if (sessionSheet == null) {
+                int sheetNo = sessionSheets.size();
+                validate(sheetNo, sheet);
+                Function<String, Dict> dictSupplier = sheet.getDictSupplier() == null ? getDefaultDictSupplier() : sheet.getDictSupplier();
+                ExcelExportPlan<T> exportPlan = sheet.getExcelEntity().compileExportPlan(dictSupplier);
+                sessionSheet = new SessionSheet(buildWriteSheet(sheetNo, sheet, exportPlan), exportPlan,
+                        new RowBatch(sheet.getFlushSize(), exportPlan.getColumnCount()));
+                sessionSheets.put(sheet, sessionSheet);
+            }
+            Iterator<T> iterator = rows == null ? Collections.emptyIterator() : rows.iterator();
+            RowBatch batch = sessionSheet.batch;
+            do {
+                batch.fill(iterator, sessionSheet.exportPlan);
+                if (batch.size > 0 || !sessionSheet.written) {
+                    excelWriter.write(batch.rows(), sessionSheet.writeSheet);
+                    sessionSheet.written = true;
+                }
+            } while (batch.isFull());
+        }
+    }
+
+    private static final class SessionSheet {
+        private final WriteSheet writeSheet;
+        private final ExcelExportPlan exportPlan;
+        private final RowBatch batch;
+        private boolean written;
+
+        SessionSheet(WriteSheet writeSheet, ExcelExportPlan exportPlan, RowBatch batch) {
+            this.writeSheet = writeSheet;
+            this.exportPlan = exportPlan;
+            this.batch = batch;
+        }
+    }
+
+    @FunctionalInterface
+    public interface PageSupplier<T> {
+        List<T> get(int pageNo, int pageSize);
+    }
+
+    private static class PageIterator<T> implements Iterator<T> {
+        private final PageSupplier<T> pageSupplier;
+        private final int pageSize;
+
+        private int pageNo = 0;
+        private Iterator<T> current = Collections.emptyIterator();
+        private boolean lastPage = false;
+
+        PageIterator(PageSupplier<T> pageSupplier, int pageSize) {
+            this.pageSupplier = pageSupplier;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                if (lastPage) {
+                    return false;
+                }
+                List<T> page = pageSupplier.get(++pageNo, pageSize);
+                if (page == null || page.isEmpty()) {
+                    lastPage = true;
+                    return false;
+                }
+                lastPage = page.size() < pageSize;
+                current = page.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+    }
+
+    /**
+     * 一批转换好的行，行缓冲区在批次间复用
+     */
+    private static final class RowBatch {
+        private final List<List<Object>> rows;
+        private final int capacity;
+        private final int columnCount;
+        private int size;
+        private List<Map<String, Object>> fillRows;
+
+        RowBatch(int capacity, int columnCount) {
+            this.rows = new ArrayList<>(capacity);
+            this.capacity = capacity;
+            this.columnCount = columnCount;
+        }
+
+        /**
+         * 有按需查找的字典列时先取出整批数据，整批转换，批量查找字典项
+         */
+        @SuppressWarnings("unchecked")
+        void fill(Iterator<?> iterator, ExcelExportPlan exportPlan) {
+            if (exportPlan.hasLazyDicts()) {
+                List<Object> data = new ArrayList<>(capacity);
+                while (data.size() < capacity && iterator.hasNext()) {
+                    data.add(iterator.next());
+                }
+                while (rows.size() < data.size()) {
+                    rows.add(Arrays.asList(new Object[columnCount]));
+                }
+                exportPlan.writeRows(data, rows);
+                this.size = data.size();
+                return;
+            }
+            int size = 0;
+            while (size < capacity && iterator.hasNext()) {
+                Object datum = iterator.next();
+                List<Object> cellValues;
+                if (size < rows.size()) {
+                    cellValues = rows.get(size);
+                } else {
+                    cellValues = Arrays.asList(new Object[columnCount]);
+                    rows.add(cellValues);
+                }
+                size++;
+                exportPlan.writeRow(datum, cellValues);
+            }
+            this.size = size;
+        }
+
+        List<List<Object>> rows() {
+            return size == rows.size() ? rows : rows.subList(0, size);
+        }
+
+        /**
+         * 以列名访问的行视图，随行缓冲区一起复用
+         */
+        List<Map<String, Object>> fillRows(Map<String, Integer> fillVariables) {
+            if (fillRows == null) {
+                fillRows = new ArrayList<>(rows.size());
+            }
+            while (fillRows.size() < rows.size()) {
+                fillRows.add(new FillRow(fillVariables, rows.get(fillRows.size())));
+            }
+            return size == fillRows.size() ? fillRows : fillRows.subList(0, size);
+        }
+
+        boolean isFull() {
+            return size == capacity;
+        }
+    }
+
+    /**
+     * 模板填充时的一行，按列名从行缓冲区取值，不必为每行复制一个Map
+     */
+    private static final class FillRow extends AbstractMap<String, Object> {
+        private final Map<String, Integer> fillVariables;
+        private final List<Object> cellValues;
+
+        FillRow(Map<String, Integer> fillVariables, List<Object> cellValues) {
+            this.fillVariables = fillVariables;
+            this.cellValues = cellValues;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return fillVariables.containsKey(key);
+        }
+
+        @Override
+        public Object get(Object key) {
+            Integer index = fillVariables.get(key);
+            return index == null ? null : cellValues.get(index);
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            Set<Entry<String, Object>> entries = new LinkedHashSet<>();
+            fillVariables.forEach((name, index) -> entries.add(new SimpleImmutableEntry<>(name, cellValues.get(index))));
+            return entries;
+        }
+    }
+
+    /**
+     * 单张工作表的转换任务，与写出线程之间通过两组有界队列交换批次
+     */
+    private static final class RowBatchPipe implements Runnable {
+        static final RowBatch END = new RowBatch(0, 0);
+        static final int BUFFERS = 2;
+
+        private final Sheet<?> sheet;
+        private final ExcelExportPlan exportPlan;
+        private final BlockingQueue<RowBatch> filled = new ArrayBlockingQueue<>(BUFFERS + 1);
+        private final BlockingQueue<RowBatch> free = new ArrayBlockingQueue<>(BUFFERS);
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+
+        RowBatchPipe(Sheet<?> sheet, ExcelExportPlan exportPlan) {
+            this.sheet = sheet;
+            this.exportPlan = exportPlan;
+            for (int i = 0; i < BUFFERS; i++) {
+                free.add(new RowBatch(sheet.getFlushSize(), exportPlan.getColumnCount()));
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                Iterator<?> iterator = dataIterator(sheet);
+                RowBatch batch;
+                do {
+                    batch = null;
+                    while (batch == null) {
+                        if (cancelled) {
+                            return;
+                        }
+                        batch = free.poll(100, TimeUnit.MILLISECONDS);
+                    }
+                    batch.fill(iterator, exportPlan);
+                    if (batch.size > 0) {
+                        filled.put(batch);
+                    }
+                } while (batch.isFull());
+            } catch (Throwable e) {
+                error = e;
+            } finally {
+                filled.offer(END);
+            }
+        }
+
+        RowBatch take() {
+            RowBatch batch;
+            try {
+                batch = filled.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ExcelException("等待工作表数据转换时被中断", e);
+            }
+            Throwable error = this.error;
+            if (batch == END && error != null) {
+                if (error instanceof RuntimeException) {
+                    throw (RuntimeException) error;
+                }
+                if (error instanceof Error) {
+                    throw (Error) error;
+                }
+                throw new ExcelException(String.format("工作表'%s'的数据转换失败", sheet.getSheetName()), error);
+            }
+            return batch;
+        }
+
+        void recycle(RowBatch batch) {
+            free.offer(batch);
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+    }
+
 }
@@ -0,0 +1,66 @@
+package com.supalle.easyexcel.wrapper;
+
+import com.alibaba.excel.support.ExcelTypeEnum;
+
+import java.util.Locale;
+
+/**
+ * 导入导出的文件格式。XLSX与XLS由EasyExcel读写；CSV与TSV由内置的流式读写器逐行处理，不经过POI，
+ * 与Excel共用同一套实体映射(取值、赋值、字典与格式化)，只有一张工作表
+ */
+public enum ExcelFormat {
+    XLSX(ExcelTypeEnum.XLSX, (char) 0),
+    XLS(ExcelTypeEnum.XLS, (char) 0),
+    CSV(null, ','),
+    TSV(null, '\t');
+
+    private final ExcelTypeEnum excelType;
+    private final char delimiter;
+
+    ExcelFormat(ExcelTypeEnum excelType, char delimiter) {
+        this.excelType = excelType;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * 是否为按行分隔的文本格式
+     */
+    public boolean isText() {
+        return excelType == null;
+    }
+
+    ExcelTypeEnum getExcelType() {
+        return excelType;
+    }
+
+    char getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * 按文件扩展名判断格式，无法判断时返回null
+     */
+    public static ExcelFormat ofFileName(String fileName) {
+        if (fileName == null) {
+            return null;
+        }
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        switch (fileName.substring(dot + 1).toLowerCase(Locale.ROOT)) {
+            case "xlsx":
+            case "xlsm":
+                return XLSX;
+            case "xls":
+                return XLS;
+            case "csv":
+                return CSV;
+            case "tsv":
+            case "tab":
+                return TSV;
+            default:
+                return null;
+        }
+    }
+}
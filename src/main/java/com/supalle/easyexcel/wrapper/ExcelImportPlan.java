@@ -0,0 +1,279 @@
+package com.supalle.easyexcel.wrapper;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 导入计划，在读到表头后由{@link ExcelEntity#compileImportPlan(Map, Function)}编译得到，编译后不可变。
+ * 每列的列索引、字典和类型转换器都已预先解析，逐行导入时只需按列执行{@link ColumnReader}。
+ * 逐行读取时只需要映射列的文本，按{@link #getColumnIndexes()}的顺序排列，未映射的列不必转换。
+ */
+@Getter
+public class ExcelImportPlan<E> {
+
+    private final ExcelEntity<E> excelEntity;
+    private final Map<String, Dict> dictMap;
+    private final ColumnReader<E>[] columnReaders;
+    /**
+     * 映射列的列索引，与columnReaders一一对应
+     */
+    private final int[] columnIndexes;
+    @Getter(AccessLevel.NONE)
+    private final MetricsRecorder recorder;
+
+    private ExcelImportPlan(ExcelEntity<E> excelEntity, Map<String, Dict> dictMap, ColumnReader<E>[] columnReaders, MetricsRecorder recorder) {
+        this.excelEntity = excelEntity;
+        this.dictMap = dictMap;
+        this.columnReaders = columnReaders;
+        this.columnIndexes = new int[columnReaders.length];
+        for (int i = 0; i < columnReaders.length; i++) {
+            this.columnIndexes[i] = columnReaders[i].columnIndex;
+        }
+        this.recorder = recorder;
+    }
+
+    /**
+     * 将一行映射列的文本读入实体，values按{@link #getColumnIndexes()}的顺序排列
+     */
+    public void readRow(int rowIndex, String[] values, E entity) {
+        if (recorder == null) {
+            readColumns(rowIndex, values, entity);
+            return;
+        }
+        try {
+            readColumns(rowIndex, values, entity);
+        } catch (RuntimeException e) {
+            recorder.errorRow();
+            throw e;
+        }
+        recorder.row();
+    }
+
+    /**
+     * 收集模式：单元格出错时继续读取该行的其余列，返回该行全部的单元格错误，没有错误时返回null
+     */
+    public List<ExcelCellException> readRowCollectingErrors(int rowIndex, String[] values, E entity) {
+        List<ExcelCellException> cellErrors = null;
+        ColumnReader<E>[] columnReaders = this.columnReaders;
+        for (int i = 0; i < columnReaders.length; i++) {
+            try {
+                columnReaders[i].read(rowIndex, values[i], entity);
+            } catch (ExcelCellException e) {
+                if (cellErrors == null) {
+                    cellErrors = new ArrayList<>();
+                }
+                cellErrors.add(e);
+            }
+        }
+        if (recorder != null) {
+            if (cellErrors == null) {
+                recorder.row();
+            } else {
+                recorder.errorRow();
+            }
+        }
+        return cellErrors;
+    }
+
+    /**
+     * 是否有按需查找的字典列，有时每批行在读入前应先调用{@link #prefetch(List)}
+     */
+    public boolean hasLazyDicts() {
+        for (ColumnReader<E> columnReader : columnReaders) {
+            if (columnReader.dictLookup != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按需查找的字典列先收集这批行的文本，每个字典一次查找缓存中没有的字典项；rows中每行按{@link #getColumnIndexes()}的顺序排列
+     */
+    public void prefetch(List<String[]> rows) {
+        long start = recorder == null ? 0L : System.nanoTime();
+        ColumnReader<E>[] columnReaders = this.columnReaders;
+        for (int i = 0; i < columnReaders.length; i++) {
+            ColumnReader<E> columnReader = columnReaders[i];
+            if (columnReader.dictLookup == null) {
+                continue;
+            }
+            List<String> keys = new ArrayList<>(rows.size());
+            for (String[] values : rows) {
+                String value = values[i];
+                if (value != null) {
+                    keys.add(columnReader.autoTrim ? value.trim() : value);
+                }
+            }
+            columnReader.dictLookup.prefetch(keys);
+        }
+        if (recorder != null) {
+            recorder.add(ExcelMetrics.Stage.DICT, System.nanoTime() - start);
+        }
+    }
+
+    private void readColumns(int rowIndex, String[] values, E entity) {
+        ColumnReader<E>[] columnReaders = this.columnReaders;
+        for (int i = 0; i < columnReaders.length; i++) {
+            columnReaders[i].read(rowIndex, values[i], entity);
+        }
+    }
+
+    static <E> ExcelImportPlan<E> compile(ExcelEntity<E> excelEntity, Map<String, Integer> headIndexMap, Function<String, Dict> dictSupplier) {
+        return compile(excelEntity, HeadIndex.of(headIndexMap), dictSupplier, null);
+    }
+
+    /**
+     * recorder不为空时编译出带分阶段计时的导入计划
+     */
+    @SuppressWarnings("unchecked")
+    static <E> ExcelImportPlan<E> compile(ExcelEntity<E> excelEntity, HeadIndex headIndex, Function<String, Dict> dictSupplier,
+                                          MetricsRecorder recorder) {
+        List<ExcelEntity.ExcelColumnMapping> excelColumnMappings = excelEntity.getExcelColumnMappings() == null
+                ? Collections.emptyList() : excelEntity.getExcelColumnMappings();
+
+        Map<String, Dict> dictMap = new HashMap<>();
+        ColumnReader<E>[] columnReaders = new ColumnReader[excelColumnMappings.size()];
+        for (int i = 0; i < columnReaders.length; i++) {
+            ExcelEntity.ExcelColumnMapping<E, ?, Object> mapping = excelColumnMappings.get(i);
+            // 查找列索引
+            String headName = String.valueOf(mapping.getHeadName()).trim();
+            Integer columnIndex = headIndex.columnIndex(excelEntity, mapping);
+            if (columnIndex == null) {
+                throw new ExcelException(String.format("必须包含'%s'列", headName));
+            }
+            // 查找字典
+            String dictName = mapping.getDict();
+            Map<String, Dict.DictItem> dictItemMap = null;
+            DictLookup dictLookup = null;
+            if (dictName != null) {
+                if (dictSupplier == null) {
+                    throw new ExcelException(String.format("没有提供字典'%s'的获取途径", dictName));
+                }
+                Dict dict = dictMap.get(dictName);
+                if (dict == null) {
+                    dict = dictSupplier.apply(dictName);
+                    if (dict == null) {
+                        throw new ExcelException(String.format("字典'%s'没有提供", dictName));
+                    }
+                    dictMap.put(dictName, dict);
+                }
+                if (dict.isLazy()) {
+                    dictLookup = mapping.isDictUsedValue() ? dict.getValueLookup() : dict.getLabelLookup();
+                } else {
+                    dictItemMap = mapping.isDictUsedValue() ? dict.getValueIndex()
+                            : mapping.isDictIgnoreCase() ? dict.getIgnoreCaseLabelIndex() : dict.getLabelIndex();
+                }
+            }
+            columnReaders[i] = new ColumnReader<>(columnIndex, mapping, dictMap.get(dictName), dictItemMap, dictLookup, recorder);
+        }
+        return new ExcelImportPlan<>(excelEntity, Collections.unmodifiableMap(dictMap), columnReaders, recorder);
+    }
+
+    @Getter
+    public static final class ColumnReader<E> {
+        private final int columnIndex;
+        private final String headName;
+        private final boolean required;
+        private final boolean jumpNull;
+        private final boolean jumpEmpty;
+        private final boolean autoTrim;
+        private final String dictName;
+        private final Dict dict;
+        private final Map<String, Dict.DictItem> dictItemMap;
+        /**
+         * 按需查找的字典列的查找器，此时dictItemMap为null
+         */
+        private final DictLookup dictLookup;
+        private final boolean dictIgnoreCase;
+        /**
+         * 字典项转换后的值，命中时不必再转换字典值
+         */
+        @Getter(AccessLevel.NONE)
+        private final Dict.TypedIndex<Object> typedIndex;
+        private final boolean settingDictItem;
+        private final BiConsumer<E, Object> setting;
+        private final Function<String, Object> converter;
+        @Getter(AccessLevel.NONE)
+        private final MetricsRecorder recorder;
+
+        @SuppressWarnings("unchecked")
+        ColumnReader(int columnIndex, ExcelEntity.ExcelColumnMapping<E, ?, Object> mapping, Dict dict, Map<String, Dict.DictItem> dictItemMap,
+                     DictLookup dictLookup, MetricsRecorder recorder) {
+            ExcelEntity.ExcelColumnImportMapping<E, Object> importMapping = mapping.getExcelColumnImportMapping();
+            this.columnIndex = columnIndex;
+            this.headName = mapping.getHeadName();
+            this.required = importMapping.isRequired();
+            this.jumpNull = importMapping.isJumpNull();
+            this.jumpEmpty = importMapping.isJumpEmpty();
+            this.autoTrim = importMapping.isAutoTrim();
+            this.dictName = mapping.getDict();
+            this.dict = dict;
+            this.dictItemMap = dictItemMap;
+            this.dictLookup = dictLookup;
+            this.dictIgnoreCase = dict != null && !dict.isLazy() && mapping.isDictIgnoreCase() && !mapping.isDictUsedValue();
+            this.recorder = recorder;
+            Function<String, Object> formatter = importMapping.getFormatter();
+            Class<Object> type = importMapping.getType();
+            this.settingDictItem = formatter == null && type != null && Dict.DictItem.class.isAssignableFrom(type);
+            this.typedIndex = dict != null && formatter == null && !settingDictItem && isTyped(type) ? dict.getValueIndex(type) : null;
+            Function<String, Object> converter = formatter != null ? formatter : settingDictItem ? null : TypeConverters.of(type);
+            if (recorder == null) {
+                this.setting = importMapping.getSetting();
+                this.converter = converter;
+            } else {
+                this.setting = recorder.timedBiConsumer(ExcelMetrics.Stage.SETTING, importMapping.getSetting());
+                this.converter = recorder.timedFunction(formatter != null ? ExcelMetrics.Stage.FORMATTING : ExcelMetrics.Stage.CONVERSION, converter);
+            }
+        }
+
+        public void read(int rowIndex, String cellValue, E entity) {
+            String rawValue = cellValue;
+            if (required && (cellValue == null || cellValue.trim().length() == 0)) {
+                throw new ExcelCellException(rowIndex, columnIndex, headName, rawValue, String.format("第%d行的'%s'列不能为空", rowIndex, headName));
+            }
+            if (jumpNull && cellValue == null) {
+                return;
+            }
+            if (jumpEmpty && (cellValue == null || cellValue.trim().length() == 0)) {
+                return;
+            }
+            if (autoTrim && cellValue != null) {
+                cellValue = cellValue.trim();
+            }
+
+            Dict.DictItem dictItem = null;
+            if (dictItemMap != null || dictLookup != null) {
+                long start = recorder == null ? 0L : System.nanoTime();
+                dictItem = dictLookup != null ? dictLookup.get(cellValue) : dictItemMap.get(dictIgnoreCase ? Dict.ignoreCase(cellValue) : cellValue);
+                if (recorder != null) {
+                    recorder.add(ExcelMetrics.Stage.DICT, System.nanoTime() - start);
+                }
+                if (dictItem == null) {
+                    throw new ExcelCellException(rowIndex, columnIndex, headName, rawValue, String.format("列'%s'的字典值'%s'超出约定范围，%s", headName, cellValue, dict.describeRange(dictName)));
+                }
+                cellValue = dictItem.getValue();
+            }
+            if (setting != null) {
+                try {
+                    Object value = typedIndex == null ? null : typedIndex.keyOf(dictItem);
+                    setting.accept(entity, settingDictItem ? dictItem : value != null ? value : converter.apply(cellValue));
+                } catch (ExcelCellException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    String cause = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+                    throw new ExcelCellException(rowIndex, columnIndex, headName, rawValue, String.format("第%d行的'%s'列的值'%s'无效：%s", rowIndex, headName, rawValue, cause), e);
+                }
+            }
+        }
+
+        private static boolean isTyped(Class<?> type) {
+            return type != null && type != String.class && type != Object.class && type != CharSequence.class;
+        }
+    }
+
+}
@@ -1,34 +1,56 @@
 package com.supalle.easyexcel.wrapper;
 
-import cn.hutool.core.convert.Convert;
 import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.ExcelReader;
 import com.alibaba.excel.context.AnalysisContext;
 import com.alibaba.excel.event.AnalysisEventListener;
-import com.alibaba.excel.read.listener.ReadListener;
+import com.alibaba.excel.metadata.CellData;
+import com.alibaba.excel.read.builder.ExcelReaderBuilder;
 import com.alibaba.excel.read.metadata.ReadSheet;
+import com.alibaba.excel.support.ExcelTypeEnum;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.File;
-import java.io.InputStream;
-import java.lang.reflect.Constructor;
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Getter
 public class ExcelImporter {
 
+    /**
+     * xls文件默认的大小上限
+     */
+    public static final long DEFAULT_MAX_XLS_SIZE = 32L * 1024 * 1024;
+    /**
+     * 块的初始容量上限，block很大(如Integer.MAX_VALUE表示整张表为一块)时随读取的行数增长
+     */
+    private static final int MAX_INITIAL_BLOCK_CAPACITY = 1024;
+
     private final List<Sheet> sheets = new ArrayList<>();
 
     private File inFile;
     private InputStream inputStream;
     private boolean autoCloseStream = true;
     private Function<String, Dict> defaultDictSupplier;
+    private int parallelism = 1;
+    private Executor executor;
+    private final List<ExcelMetricsListener> metricsListeners = new ArrayList<>();
+    private File errorWorkbookFile;
+    private OutputStream errorWorkbookStream;
+    private ExcelFormat format;
+    private Charset charset = StandardCharsets.UTF_8;
+    private long maxXlsSize = DEFAULT_MAX_XLS_SIZE;
 
     public static ExcelImporter create() {
         return new ExcelImporter();
@@ -44,6 +66,32 @@ public class ExcelImporter {
         return this;
     }
 
+    /**
+     * 文件格式，不指定时按文件头的魔数判断(ZIP为xlsx，OLE2为xls，其余为CSV/TSV)，
+     * 文本文件的分隔符优先按扩展名，没有时按首行判断
+     */
+    public ExcelImporter format(ExcelFormat format) {
+        this.format = format;
+        return this;
+    }
+
+    /**
+     * CSV/TSV的字符集，默认UTF-8
+     */
+    public ExcelImporter charset(Charset charset) {
+        this.charset = charset;
+        return this;
+    }
+
+    /**
+     * xls文件的大小上限(字节)，超过时在解析前拒绝，不大于0时不限制，默认32MB。
+     * xls按记录逐条解析，但共享字符串表等仍需常驻内存，大文件应另存为xlsx后导入
+     */
+    public ExcelImporter maxXlsSize(long maxXlsSize) {
+        this.maxXlsSize = maxXlsSize;
+        return this;
+    }
+
     public ExcelImporter defaultDictSupplier(Function<String, Dict> defaultDictSupplier) {
         this.defaultDictSupplier = defaultDictSupplier;
         return this;
@@ -54,10 +102,58 @@ public class ExcelImporter {
         return this;
     }
 
+    /**
+     * 大于1时启用流水线导入：解析、数据转换与handler处理相互重叠，handler收到的块仍按行号顺序
+     */
+    public ExcelImporter parallelism(int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * 流水线导入使用的线程池；不指定时每次导入临时创建
+     */
+    public ExcelImporter executor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * 注册统计监听器，导入结束后回调各工作表的行数、耗时、各阶段耗时与读入字节数
+     */
+    public ExcelImporter metricsListener(ExcelMetricsListener metricsListener) {
+        if (metricsListener != null) {
+            this.metricsListeners.add(metricsListener);
+        }
+        return this;
+    }
+
+    /**
+     * 导入时把出错的行写入错误工作簿文件：每张出错的工作表对应一张同名工作表，保留原始列并追加错误信息列，出错的单元格附带批注。
+     * 没有开启收集模式的工作表会以collectErrors(0)收集；没有错误时不创建文件
+     */
+    public ExcelImporter errorWorkbook(File errorWorkbookFile) {
+        this.errorWorkbookFile = errorWorkbookFile;
+        this.errorWorkbookStream = null;
+        return this;
+    }
+
+    /**
+     * 同{@link #errorWorkbook(File)}，写出到流，流由调用方关闭；没有错误时不写出任何内容
+     */
+    public ExcelImporter errorWorkbook(OutputStream errorWorkbookStream) {
+        this.errorWorkbookStream = errorWorkbookStream;
+        this.errorWorkbookFile = null;
+        return this;
+    }
+
     public <T> Sheet<T> sheet() {
         return sheet(null, null);
     }
 
+    /**
+     * 读取名称与正则表达式完整匹配的全部工作表。CSV/TSV的工作表名称为文件名(不含扩展名)，从流读取时没有名称，导入时报错
+     */
     public <T> Sheet<T> sheet(String sheetNamePattern) {
         return sheet(sheetNamePattern, null);
     }
@@ -87,6 +183,8 @@ public class ExcelImporter {
             if (sheet.block < 1) {
                 sheet.block = 1;
             }
+            int maxErrors = sheet.maxErrors < 0 && (errorWorkbookFile != null || errorWorkbookStream != null) ? 0 : sheet.maxErrors;
+            sheet.errors = maxErrors >= 0 ? new ImportErrors(maxErrors) : null;
             if (sheet.getExcelEntity() == null) {
                 throw new ExcelException(String.format("第%d张工作表的实体映射为Null", i));
             }
@@ -100,15 +198,409 @@ public class ExcelImporter {
             }
         }
 
-        if (inputStream != null) {
-            if (autoCloseStream) {
-                EasyExcel.read(inputStream).autoCloseStream(true).build().read(buildReadSheets());
-            } else {
-                EasyExcel.read(inputStream).autoCloseStream(false).build().read(buildReadSheets());
+        ExecutorService ownedExecutor = null;
+        Executor executor = null;
+        if (this.parallelism > 1) {
+            executor = this.executor;
+            if (executor == null) {
+                AtomicInteger threadNo = new AtomicInteger();
+                ownedExecutor = Executors.newFixedThreadPool(this.parallelism, r -> {
+                    Thread thread = new Thread(r, "excel-importer-" + threadNo.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                executor = ownedExecutor;
+            }
+        }
+        List<MetricsRecorder> recorders = null;
+        MetricsRecorder.CountingInputStream countingStream = null;
+        if (!this.metricsListeners.isEmpty()) {
+            // 每张实际读取的工作表一个，在确定要读取的工作表后创建
+            recorders = new ArrayList<>();
+            if (inputStream != null) {
+                countingStream = new MetricsRecorder.CountingInputStream(inputStream);
+            }
+        }
+        ErrorWorkbookWriter errorWorkbook = null;
+        if (errorWorkbookFile != null || errorWorkbookStream != null) {
+            errorWorkbook = new ErrorWorkbookWriter(errorWorkbookFile, errorWorkbookStream);
+            for (Sheet sheet : this.sheets) {
+                sheet.errors.failedRowListener(errorWorkbook);
+            }
+        }
+        long startNanos = System.nanoTime();
+        Throwable error = null;
+        List<AsyncBlockHandler<?>> asyncHandlers = new ArrayList<>();
+        try {
+            doRead(countingStream != null ? countingStream : inputStream, executor, asyncHandlers, recorders, errorWorkbook);
+        } catch (Throwable e) {
+            error = e;
+            throw e;
+        } finally {
+            asyncHandlers.forEach(AsyncBlockHandler::abort);
+            if (ownedExecutor != null) {
+                ownedExecutor.shutdownNow();
+            }
+            if (errorWorkbook != null) {
+                // 导入失败时也写出已收集到的出错行
+                try {
+                    errorWorkbook.close();
+                } catch (RuntimeException e) {
+                    if (error == null) {
+                        throw e;
+                    }
+                    error.addSuppressed(e);
+                }
+            }
+            if (recorders != null) {
+                long bytes = countingStream != null ? countingStream.getCount() : inputStream == null && inFile != null ? inFile.length() : 0L;
+                List<ExcelMetrics.SheetMetrics> sheetMetrics = new ArrayList<>(recorders.size());
+                recorders.forEach(recorder -> sheetMetrics.add(recorder.snapshot()));
+                MetricsRecorder.complete(this.metricsListeners,
+                        new ExcelMetrics(ExcelMetrics.Operation.IMPORT, sheetMetrics, bytes, System.nanoTime() - startNanos, error));
             }
+        }
+    }
+
+    /**
+     * 最近一次导入中，开启了收集模式的各工作表保留的错误明细
+     */
+    public List<ImportError> getErrors() {
+        List<ImportError> errors = new ArrayList<>();
+        for (Sheet sheet : this.sheets) {
+            if (sheet.errors != null) {
+                errors.addAll(sheet.errors.getErrors());
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * 最近一次导入中，开启了收集模式的各工作表的错误总数
+     */
+    public long getErrorCount() {
+        long errorCount = 0;
+        for (Sheet sheet : this.sheets) {
+            if (sheet.errors != null) {
+                errorCount += sheet.errors.getErrorCount();
+            }
+        }
+        return errorCount;
+    }
+
+    /**
+     * 只读取各工作表的表头，返回检测到的列及其与实体映射的对应情况；每张工作表读到表头后立即结束解析，不读取数据行。
+     * 工作表的选择规则与导入相同，不需要设置handler
+     */
+    public List<HeadProbe> probe() {
+        if (this.sheets.isEmpty()) {
+            throw new ExcelException("请添加要读取的工作表(Sheet)。");
+        }
+        ReadSource source = openSource(this.inputStream);
+        try {
+            return probe(source);
+        } finally {
+            source.close();
+        }
+    }
+
+    private List<HeadProbe> probe(ReadSource source) {
+        if (source.format.isText()) {
+            Map<ReadSheet, Sheet> selected = selectSheets(textSheets());
+            List<HeadProbe> probes = new ArrayList<>(selected.size());
+            selected.forEach((workbookSheet, sheet) -> {
+                List<Map<Integer, String>> headRows = new ArrayList<>();
+                readText(source, probeListener(sheet.resolveHeadRowNumber(), headRows), sheet.resolveHeadRowNumber());
+                HeadIndex headIndex = new HeadIndex(HeadIndex.headPaths(headRows), sheet.duplicateHeadPolicy);
+                probes.add(HeadProbe.of(workbookSheet.getSheetNo(), workbookSheet.getSheetName(), sheet.getExcelEntity(), headIndex));
+            });
+            return probes;
+        }
+        ExcelReader excelReader = buildExcelReader(source);
+        try {
+            Map<ReadSheet, Sheet> selected = selectSheets(excelReader.excelExecutor().sheetList());
+            List<ReadSheet> readSheets = new ArrayList<>(selected.size());
+            List<SheetListener> listeners = new ArrayList<>(selected.size());
+            List<List<Map<Integer, String>>> headRowsList = new ArrayList<>(selected.size());
+            selected.forEach((workbookSheet, sheet) -> {
+                int headRowNumber = sheet.resolveHeadRowNumber();
+                List<Map<Integer, String>> headRows = new ArrayList<>(headRowNumber);
+                SheetListener listener = probeListener(headRowNumber, headRows);
+                headRowsList.add(headRows);
+                listeners.add(listener);
+                readSheets.add(EasyExcel.readSheet(workbookSheet.getSheetNo()).headRowNumber(headRowNumber).registerReadListener(listener).build());
+            });
+            read(excelReader, readSheets, listeners);
+
+            List<HeadProbe> probes = new ArrayList<>(selected.size());
+            int i = 0;
+            for (Map.Entry<ReadSheet, Sheet> entry : selected.entrySet()) {
+                ReadSheet workbookSheet = entry.getKey();
+                Sheet sheet = entry.getValue();
+                HeadIndex headIndex = new HeadIndex(HeadIndex.headPaths(headRowsList.get(i++)), sheet.duplicateHeadPolicy);
+                probes.add(HeadProbe.of(workbookSheet.getSheetNo(), workbookSheet.getSheetName(), sheet.getExcelEntity(), headIndex));
+            }
+            return probes;
+        } finally {
+            excelReader.finish();
+        }
+    }
+
+    /**
+     * 只收集表头行，读完表头即结束
+     */
+    private static SheetListener probeListener(int headRowNumber, List<Map<Integer, String>> headRows) {
+        return new SheetListener() {
+            @Override
+            void head(int rowIndex, Map<Integer, String> headMap) {
+                headRows.add(headMap);
+                if (rowIndex >= headRowNumber - 1) {
+                    this.ended = true;
+                }
+            }
+
+            @Override
+            void row(int rowIndex, Object data) {
+                // 没有表头的工作表
+                this.ended = true;
+            }
+
+            @Override
+            void complete() {
+            }
+        };
+    }
+
+    private void doRead(InputStream inputStream, Executor executor, List<AsyncBlockHandler<?>> asyncHandlers, List<MetricsRecorder> recorders,
+                        ErrorWorkbookWriter errorWorkbook) {
+        ReadSource source = openSource(inputStream);
+        try {
+            doRead(source, executor, asyncHandlers, recorders, errorWorkbook);
+        } finally {
+            source.close();
+        }
+    }
+
+    private void doRead(ReadSource source, Executor executor, List<AsyncBlockHandler<?>> asyncHandlers, List<MetricsRecorder> recorders,
+                        ErrorWorkbookWriter errorWorkbook) {
+        if (source.format.isText()) {
+            // CSV/TSV只有一张工作表
+            Map<ReadSheet, Sheet> selected = selectSheets(textSheets());
+            AtomicLong clock = new AtomicLong(System.nanoTime());
+            selected.forEach((workbookSheet, sheet) -> {
+                MetricsRecorder recorder = null;
+                if (recorders != null) {
+                    recorder = new MetricsRecorder(ExcelMetrics.Operation.IMPORT, 0, workbookSheet.getSheetName());
+                    recorders.add(recorder);
+                }
+                SheetListener listener = buildListener(sheet, 0, workbookSheet.getSheetName(), executor, asyncHandlers, recorder, clock, errorWorkbook);
+                readText(source, listener, sheet.resolveHeadRowNumber());
+            });
             return;
         }
+        ExcelReader excelReader = buildExcelReader(source);
+        try {
+            // 工作表名称来自工作簿的元数据，不会解析工作表内容
+            Map<ReadSheet, Sheet> selected = selectSheets(excelReader.excelExecutor().sheetList());
+            List<ReadSheet> readSheets = new ArrayList<>(selected.size());
+            List<SheetListener> listeners = new ArrayList<>(selected.size());
+            // 工作表依次解析，上一张工作表结束的时间即下一张开始的时间
+            AtomicLong clock = new AtomicLong(System.nanoTime());
+            selected.forEach((workbookSheet, sheet) -> {
+                int sheetNo = workbookSheet.getSheetNo();
+                MetricsRecorder recorder = null;
+                if (recorders != null) {
+                    recorder = new MetricsRecorder(ExcelMetrics.Operation.IMPORT, sheetNo, workbookSheet.getSheetName());
+                    recorders.add(recorder);
+                }
+                SheetListener listener = buildListener(sheet, sheetNo, workbookSheet.getSheetName(), executor, asyncHandlers, recorder, clock, errorWorkbook);
+                listeners.add(listener);
+                readSheets.add(EasyExcel.readSheet(sheetNo).headRowNumber(sheet.resolveHeadRowNumber()).registerReadListener(listener).build());
+            });
+            read(excelReader, readSheets, listeners);
+        } finally {
+            // 关闭流并删除解析用的临时文件
+            excelReader.finish();
+        }
+    }
+
+    /**
+     * 监听器提前结束时EasyExcel会中断整个解析，补上该工作表的收尾后从下一张工作表继续。
+     * xls的解析器中断后无法继续，除最后一张工作表外提前结束时只跳过剩余的行
+     */
+    private static void read(ExcelReader excelReader, List<ReadSheet> readSheets, List<SheetListener> listeners) {
+        boolean resumable = excelReader.analysisContext().readWorkbookHolder().getExcelType() != ExcelTypeEnum.XLS;
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).stoppable = resumable || i == listeners.size() - 1;
+        }
+        int from = 0;
+        while (from < readSheets.size()) {
+            excelReader.read(readSheets.subList(from, readSheets.size()));
+            int next = readSheets.size();
+            for (int i = from; i < readSheets.size(); i++) {
+                SheetListener listener = listeners.get(i);
+                if (listener.ended && !listener.completed) {
+                    listener.doAfterAllAnalysed(null);
+                    next = i + 1;
+                    break;
+                }
+            }
+            from = next;
+        }
+    }
+
+    /**
+     * 逐行读取CSV/TSV交给监听器：前headRowNumber行为表头，空行跳过；监听器结束后不再读取之后的行。
+     * 文件在读完后关闭，流按autoCloseStream关闭
+     */
+    @SuppressWarnings("unchecked")
+    private void readText(ReadSource source, SheetListener listener, int headRowNumber) {
+        InputStream in = source.inputStream;
+        try {
+            if (in == null) {
+                in = new FileInputStream(source.file);
+            }
+            CsvReader reader = new CsvReader(new InputStreamReader(in, charset), source.format.getDelimiter());
+            listener.textReader = (RowTextReader) CsvReader.TEXT_READER;
+            try {
+                String[] values;
+                while (!listener.ended && (values = reader.next()) != null) {
+                    if (CsvReader.isBlank(values)) {
+                        continue;
+                    }
+                    int rowIndex = reader.getRowIndex();
+                    if (rowIndex < headRowNumber) {
+                        listener.head(rowIndex, CsvReader.TEXT_READER.texts(values, rowIndex));
+                    } else {
+                        listener.row(rowIndex, values);
+                    }
+                }
+            } catch (RuntimeException e) {
+                listener.abort();
+                throw e;
+            }
+            listener.doAfterAllAnalysed(null);
+        } catch (IOException e) {
+            listener.abort();
+            throw new ExcelException("读取文件失败", e);
+        } finally {
+            if (in != null && (source.inputStream == null || autoCloseStream)) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    log.warn("关闭文件流失败", e);
+                }
+            }
+        }
+    }
 
+    /**
+     * CSV/TSV只有一张工作表，名称取文件名(不含扩展名)。
+     * 从流读取时没有名称，按名称匹配的工作表无从判断是否对应，直接报错而不是静默跳过
+     */
+    private List<ReadSheet> textSheets() {
+        String sheetName = textSheetName();
+        if (sheetName == null) {
+            for (Sheet<?> sheet : this.sheets) {
+                if (sheet.getSheetNamePattern() != null) {
+                    throw new ExcelException(String.format("从流读取的CSV/TSV没有工作表名称，无法按名称'%s'匹配工作表，请改用sheet()或inFile(File)",
+                            sheet.getSheetNamePattern().pattern()));
+                }
+            }
+        }
+        return Collections.singletonList(new ReadSheet(0, sheetName));
+    }
+
+    /**
+     * CSV/TSV的工作表名称取文件名(不含扩展名)，从流读取时为空
+     */
+    private String textSheetName() {
+        if (inputStream != null || inFile == null) {
+            return null;
+        }
+        String name = inFile.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    /**
+     * 确定导入文件的格式与读取来源。指定了格式时直接采用，否则读取文件头判断，不会交给POI再判断一次。
+     * xls在解析前检查大小：文件直接按长度拒绝；流先边计数边转存到临时文件，超过上限立即停止，
+     * 之后按文件读取，POI的OLE2文件系统按需读取文件块，不必把整个流读入内存
+     */
+    private ReadSource openSource(InputStream inputStream) {
+        if (inputStream == null) {
+            checkInFile();
+            ExcelFormat format = this.format != null ? this.format : FormatDetector.detect(inFile, ExcelFormat.ofFileName(inFile.getName()));
+            if (format == ExcelFormat.XLS) {
+                checkXlsSize(inFile.length());
+            }
+            return new ReadSource(format, inFile, null, false);
+        }
+        if (!inputStream.markSupported()) {
+            inputStream = new BufferedInputStream(inputStream, FormatDetector.PEEK_SIZE);
+        }
+        ExcelFormat format = this.format != null ? this.format : FormatDetector.detect(inputStream, null);
+        if (format == ExcelFormat.XLS) {
+            return new ReadSource(format, spoolXls(inputStream), null, true);
+        }
+        return new ReadSource(format, null, inputStream, false);
+    }
+
+    private File spoolXls(InputStream inputStream) {
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile("excel-importer-", ".xls");
+            try (OutputStream out = new FileOutputStream(tempFile)) {
+                byte[] buffer = new byte[FormatDetector.PEEK_SIZE];
+                long size = 0;
+                int n;
+                while ((n = inputStream.read(buffer)) != -1) {
+                    size += n;
+                    checkXlsSize(size);
+                    out.write(buffer, 0, n);
+                }
+            }
+            return tempFile;
+        } catch (IOException | RuntimeException e) {
+            if (tempFile != null && !tempFile.delete()) {
+                log.warn("删除临时文件失败 {}", tempFile);
+            }
+            if (e instanceof IOException) {
+                throw new ExcelException("读取文件流失败", e);
+            }
+            throw (RuntimeException) e;
+        } finally {
+            if (autoCloseStream) {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    log.warn("关闭文件流失败", e);
+                }
+            }
+        }
+    }
+
+    private void checkXlsSize(long size) {
+        if (maxXlsSize > 0 && size > maxXlsSize) {
+            throw new ExcelException(String.format("xls文件超过了%d字节的大小限制，请另存为xlsx后再导入", maxXlsSize));
+        }
+    }
+
+    /**
+     * 不使用EasyExcel的默认监听器，监听器直接收到单元格，只有映射列才会转换为文本
+     */
+    private ExcelReader buildExcelReader(ReadSource source) {
+        ExcelReaderBuilder excelReaderBuilder;
+        if (source.inputStream != null) {
+            excelReaderBuilder = EasyExcel.read(source.inputStream).useDefaultListener(false).autoCloseStream(autoCloseStream);
+        } else {
+            excelReaderBuilder = EasyExcel.read(source.file).useDefaultListener(false).autoCloseStream(true);
+        }
+        return excelReaderBuilder.excelType(source.format.getExcelType()).build();
+    }
+
+    private void checkInFile() {
         if (inFile == null) {
             throw new ExcelException("需要指定导入的Excel文件或者文件流。");
         }
@@ -120,156 +612,408 @@ public class ExcelImporter {
         if (inFile.isDirectory()) {
             throw new ExcelException("无法导入一个文件夹 " + inFile.getName());
         }
-
-        EasyExcel.read(inFile).autoCloseStream(true).build().read(buildReadSheets());
-
     }
 
-    private List<ReadSheet> buildReadSheets() {
-        List<ReadSheet> list = new ArrayList<>();
-
-        int sheetNo = 0;
+    /**
+     * 没有sheetNamePattern的工作表按其添加的顺序对应工作簿中同一位置的工作表；
+     * 有sheetNamePattern的工作表读取名称完整匹配的全部工作表，已被前面的配置占用的除外。没有匹配上的工作表不会被解析。
+     * 返回的工作表按其在工作簿中的顺序排列
+     */
+    private Map<ReadSheet, Sheet> selectSheets(List<ReadSheet> workbookSheets) {
+        Map<Integer, ReadSheet> sheetNoMap = new TreeMap<>();
+        for (ReadSheet workbookSheet : workbookSheets) {
+            sheetNoMap.put(workbookSheet.getSheetNo(), workbookSheet);
+        }
+        Map<Integer, Sheet> selected = new TreeMap<>();
+        for (int i = 0; i < this.sheets.size(); i++) {
+            Sheet sheet = this.sheets.get(i);
+            if (sheet.getSheetNamePattern() == null && sheetNoMap.containsKey(i)) {
+                selected.put(i, sheet);
+            }
+        }
         for (Sheet sheet : this.sheets) {
-            ReadListener readListener = buildListener(sheet);
-            list.add(EasyExcel.readSheet(sheetNo++).registerReadListener(readListener).build());
+            Pattern sheetNamePattern = sheet.getSheetNamePattern();
+            if (sheetNamePattern == null) {
+                continue;
+            }
+            sheetNoMap.forEach((sheetNo, workbookSheet) -> {
+                String sheetName = workbookSheet.getSheetName();
+                if (!selected.containsKey(sheetNo) && sheetName != null && sheetNamePattern.matcher(sheetName).matches()) {
+                    selected.put(sheetNo, sheet);
+                }
+            });
         }
 
-        return list;
+        Map<ReadSheet, Sheet> result = new LinkedHashMap<>();
+        selected.forEach((sheetNo, sheet) -> result.put(sheetNoMap.get(sheetNo), sheet));
+        return result;
     }
 
-    private ReadListener buildListener(Sheet sheet) {
+    /**
+     * executor不为空时使用流水线模式：解析线程只收集原始行，每满block行交给线程池转换，
+     * 转换好的块按行号顺序交给handler；有按需查找的字典列时没有线程池也按块转换，每块批量查找一次字典项；sheet开启asyncHandler时块交给独立线程异步处理。
+     * recorder不为空时采集统计，EasyExcel解析耗时为工作表总耗时减去各回调的耗时。
+     * sheet开启收集模式时，出错的行记录错误后跳过，缺少表头或表头重复时记录下来并跳过整张工作表；errorWorkbook不为空时出错的行同时写入错误工作簿。
+     * 达到limit行或stopWhen成立时结束解析
+     */
+    @SuppressWarnings("unchecked")
+    private SheetListener buildListener(Sheet sheet, int sheetNo, String sheetName, Executor executor, List<AsyncBlockHandler<?>> asyncHandlers,
+                                       MetricsRecorder recorder, AtomicLong clock, ErrorWorkbookWriter errorWorkbook) {
 
+        int maxPending = this.parallelism * 2;
+        int blockSize = sheet.block;
+        int initialCapacity = Math.min(blockSize, MAX_INITIAL_BLOCK_CAPACITY);
+        ImportErrors errors = sheet.errors;
+        boolean recycleBlock = sheet.recycleBlock;
+        int limit = sheet.limit;
+        Predicate<Row<?>> stopWhen = sheet.stopWhen;
+        int headRowNumber = sheet.resolveHeadRowNumber();
+        Queue<RowBlock> blockPool = new ConcurrentLinkedQueue<>();
+        Consumer<List<Row<?>>> userHandler = recorder == null ? sheet.getHandler() : recorder.timedConsumer(ExcelMetrics.Stage.HANDLER, sheet.getHandler());
+        Consumer<RowBlock> sink = block -> {
+            userHandler.accept(block.rows);
+            if (recycleBlock) {
+                block.rows.clear();
+                blockPool.offer(block);
+            }
+        };
+        AsyncBlockHandler<RowBlock> asyncHandler = null;
+        if (sheet.asyncQueueCapacity > 0) {
+            asyncHandler = new AsyncBlockHandler<>(sink, sheet.asyncQueueCapacity, "excel-import-handler-" + sheetNo);
+            asyncHandlers.add(asyncHandler);
+        }
+        AsyncBlockHandler<RowBlock> async = asyncHandler;
+        Consumer<RowBlock> handler = asyncHandler != null ? asyncHandler : sink;
+        Supplier<RowBlock> blockSupplier = () -> {
+            RowBlock block = recycleBlock ? blockPool.poll() : null;
+            return block != null ? block : new RowBlock(initialCapacity, recycleBlock);
+        };
 
-        return new AnalysisEventListener<Map<Integer, String>>() {
+        return new SheetListener() {
 
-            private List<Row<ExcelEntity.ExcelColumnMapping>> excelColumnMappings;
+            private ExcelImportPlan importPlan;
             private Supplier<?> entitySupplier;
+            private int[] columnIndexes;
+            private int readRows;
+            // stopWhen成立后丢弃之后的行
+            private boolean discarding;
 
-            private Map<String, Dict> dictMap;
-            private Map<Integer, Map<String, Dict.DictItem>> dictItemMap;
+            private RowBlock rows = blockSupplier.get();
 
-            private List<Row<?>> rows = new LinkedList<>();
+            private List<Row<Object>> rawRows = new ArrayList<>(initialCapacity);
+            private final Deque<Future<RowBlock>> pending = new ArrayDeque<>();
+            // 转换块的线程池；有按需查找的字典列时没有线程池也按块转换，在当前线程上执行
+            private Executor blockExecutor = executor;
+            private boolean lazyDicts;
+
+            private final List<Map<Integer, String>> headRows = new ArrayList<>(headRowNumber);
+            private boolean headResolved;
+
+            private long callbackNanos;
 
             @Override
-            public void invokeHeadMap(Map<Integer, String> headMap, AnalysisContext context) {
-                List<ExcelEntity.ExcelColumnMapping> excelColumnMappings = sheet.getExcelEntity().getExcelColumnMappings();
-                Map<String, Integer> indexMap = headMap.entrySet().stream().collect(Collectors.toMap(e -> String.valueOf(e.getValue()).trim(), e -> e.getKey()));
-                this.excelColumnMappings = new ArrayList<>(excelColumnMappings.size());
-                this.dictMap = new HashMap<>();
-                this.dictItemMap = new HashMap<>();
-                for (ExcelEntity.ExcelColumnMapping mapping : excelColumnMappings) {
-                    // 查找列索引
-                    String headName = String.valueOf(mapping.getHeadName()).trim();
-                    Integer columnIndex = indexMap.get(headName);
-                    if (columnIndex == null) {
-                        throw new ExcelException(String.format("必须包含'%s'列", headName));
+            void head(int rowIndex, Map<Integer, String> headMap) {
+                if (recorder != null) {
+                    recorder.start(clock.get());
+                }
+                headRows.add(headMap);
+                if (rowIndex >= headRowNumber - 1) {
+                    resolveHead(rowIndex);
+                }
+            }
 
-                    } else {
-                        this.excelColumnMappings.add(new Row<>(columnIndex, mapping));
+            /**
+             * 读完全部表头行(或表头行为空时读到第一行数据)后编译导入计划
+             */
+            private void resolveHead(int rowIndex) {
+                long start = System.nanoTime();
+                headResolved = true;
+                HeadIndex headIndex = new HeadIndex(HeadIndex.headPaths(headRows), sheet.duplicateHeadPolicy);
+                if (errors != null) {
+                    if (errorWorkbook != null) {
+                        errorWorkbook.head(sheetNo, sheetName, headIndex.getHeadPaths());
                     }
-                    // 查找字典
-                    String dictName = mapping.getDict();
-                    if (dictName != null) {
-                        Function<String, Dict> dictSupplier = sheet.getDictSupplier() == null ? sheet.getParent().getDefaultDictSupplier() : sheet.getDictSupplier();
-                        if (Optional.ofNullable(dictSupplier).isPresent()) {
-                            Dict dict = dictSupplier.apply(dictName);
-                            if (dict == null) {
-                                throw new ExcelException(String.format("字典'%s'没有提供", dictName));
+                    ExcelEntity<?> excelEntity = sheet.getExcelEntity();
+                    List<ExcelEntity.ExcelColumnMapping> mappings = excelEntity.getExcelColumnMappings() == null ? Collections.emptyList() : excelEntity.getExcelColumnMappings();
+                    List<String> reasons = new ArrayList<>();
+                    for (ExcelEntity.ExcelColumnMapping<?, ?, ?> mapping : mappings) {
+                        String headName = String.valueOf(mapping.getHeadName()).trim();
+                        String reason = null;
+                        try {
+                            if (headIndex.columnIndex(excelEntity, mapping) == null) {
+                                reason = String.format("必须包含'%s'列", headName);
                             }
-                            dictMap.put(dictName, dict);
-                            Map<String, Dict.DictItem> dictItemMap = Optional.ofNullable(dict.getDictItems())
-                                    .orElseGet(ArrayList::new)
-                                    .stream().collect(Collectors.toMap(e -> mapping.isDictUsedValue() ? e.getValue() : e.getLabel()
-                                            , e -> e));
-                            this.dictItemMap.put(columnIndex, dictItemMap);
-                        } else {
-                            throw new ExcelException(String.format("没有提供字典'%s'的获取途径", dictName));
+                        } catch (ExcelException e) {
+                            reason = e.getMessage();
+                        }
+                        if (reason != null) {
+                            errors.add(sheetNo, sheetName, rowIndex, headName, null, reason);
+                            reasons.add(reason);
                         }
                     }
-                }
-                //
-                try {
-                    Constructor constructor = sheet.getExcelEntity().getEntityClass().getConstructor();
-                    entitySupplier = () -> {
-                        try {
-                            return constructor.newInstance();
-                        } catch (Exception e) {
-                            log.error(e.getMessage(), e);
-                            throw new ExcelException(String.format("实体类型'%s'创建对象失败。", sheet.getExcelEntity().getEntityClass().getName()));
+                    if (!reasons.isEmpty()) {
+                        if (errorWorkbook != null) {
+                            errorWorkbook.headFailed(sheetNo, reasons);
                         }
-                    };
-                } catch (Exception e) {
-                    log.error(e.getMessage(), e);
-                    throw new ExcelException(String.format("实体类型'%s'没有空参构造器。", sheet.getExcelEntity().getEntityClass().getName()));
+                        callbackNanos += System.nanoTime() - start;
+                        return;
+                    }
                 }
-
+                Function<String, Dict> dictSupplier = sheet.getDictSupplier() == null ? sheet.getParent().getDefaultDictSupplier() : sheet.getDictSupplier();
+                this.importPlan = ExcelImportPlan.compile(sheet.getExcelEntity(), headIndex, dictSupplier, recorder);
+                this.entitySupplier = sheet.getExcelEntity().getEntityFactory();
+                this.columnIndexes = importPlan.getColumnIndexes();
+                this.lazyDicts = importPlan.hasLazyDicts();
+                if (lazyDicts && blockExecutor == null) {
+                    blockExecutor = Runnable::run;
+                }
+                if (limit == 0) {
+                    this.ended = true;
+                }
+                callbackNanos += System.nanoTime() - start;
             }
 
             @Override
-            public void invoke(Map<Integer, String> data, AnalysisContext context) {
-                Object obj = entitySupplier.get();
-                Row<Object> row = new Row<>(context.readRowHolder().getRowIndex(), obj);
-                this.rows.add(row);
-                for (Row<ExcelEntity.ExcelColumnMapping> tuple : excelColumnMappings) {
-                    Integer columnIndex = tuple.getIndex();
-                    ExcelEntity.ExcelColumnMapping mapping = tuple.getData();
-                    ExcelEntity.ExcelColumnImportMapping importMapping = mapping.getExcelColumnImportMapping();
-
-                    String cellValue = data.get(columnIndex);
-                    if (importMapping.isRequired() && (cellValue == null || cellValue.trim().length() == 0)) {
-                        throw new ExcelException(String.format("第%d行的'%s'列不能为空", row.getIndex(), mapping.getHeadName()));
-                    }
-                    if (importMapping.isJumpNull() && cellValue == null) {
-                        continue;
+            void row(int rowIndex, Object data) {
+                if (recorder == null) {
+                    read(rowIndex, data);
+                    return;
+                }
+                long start = System.nanoTime();
+                try {
+                    read(rowIndex, data);
+                } finally {
+                    callbackNanos += System.nanoTime() - start;
+                }
+            }
+
+            private void read(int rowIndex, Object data) {
+                if (this.ended) {
+                    return;
+                }
+                if (!headResolved) {
+                    resolveHead(rowIndex);
+                    if (this.ended) {
+                        return;
                     }
-                    if (importMapping.isJumpEmpty() && (cellValue == null || cellValue.trim().length() == 0)) {
-                        continue;
+                }
+                if (errors != null && importPlan == null) {
+                    // 表头不符，跳过整张工作表
+                    if (recorder != null) {
+                        recorder.skippedRow();
                     }
-                    if (importMapping.isAutoTrim() && cellValue != null) {
-                        cellValue = cellValue.trim();
+                    return;
+                }
+                if (limit > 0 && ++readRows >= limit) {
+                    this.ended = true;
+                }
+                if (blockExecutor != null) {
+                    rawRows.add(new Row<>(rowIndex, data));
+                    if (rawRows.size() >= blockSize) {
+                        submit();
                     }
+                    return;
+                }
+                Object entity = readEntity(rowIndex, data);
+                if (entity == null) {
+                    return;
+                }
+                if (stopWhen != null && stopWhen.test(new Row<>(rowIndex, entity))) {
+                    this.ended = true;
+                    return;
+                }
+                rows.add(rowIndex, entity);
+                if (rows.size() >= blockSize) {
+                    handler.accept(rows);
+                    rows = blockSupplier.get();
+                }
+            }
 
-                    String dictName = mapping.getDict();
-                    Dict.DictItem dictItem = null;
-                    if (mapping.getDict() != null) {
-                        Dict dict = dictMap.get(dictName);
-                        Map<String, Dict.DictItem> itemMap = this.dictItemMap.get(columnIndex);
-                        if ((dictItem = itemMap.get(cellValue)) == null) {
-                            throw new ExcelException(String.format("列'%s'的字典值'%s'超出约定范围，可用字典'%s:%s'只包含%s", mapping.getHeadName(), cellValue, dictName, dict.getComment(), dict.getDictItems().toString()));
-                        }
-                        cellValue = dictItem.getValue();
+            @Override
+            void complete() {
+                long start = System.nanoTime();
+                if (blockExecutor != null) {
+                    if (!discarding && !rawRows.isEmpty()) {
+                        submit();
                     }
-                    if ((importMapping.getSetting() != null)) {
-                        Function<String, ?> formatter = importMapping.getFormatter();
-                        if (formatter != null) {
-                            if (importMapping.getSetting() != null)
-                                importMapping.getSetting().accept(obj, formatter.apply(cellValue));
+                    while (!pending.isEmpty()) {
+                        Future<RowBlock> future = pending.poll();
+                        if (discarding) {
+                            future.cancel(true);
                         } else {
-                            Class<?> type = importMapping.getType();
-                            if (Dict.DictItem.class.isAssignableFrom(type)) {
-                                importMapping.getSetting().accept(obj, dictItem);
-                            } else {
-                                importMapping.getSetting().accept(obj, Convert.convert(type, cellValue));
-                            }
+                            deliver(await(future));
                         }
                     }
+                } else if (rows.size() > 0) {
+                    handler.accept(rows);
+                    rows = blockSupplier.get();
+                }
+                if (async != null) {
+                    async.finish();
                 }
-                if (rows.size() % sheet.block == 0) {
-                    sheet.getHandler().accept(rows);
-                    rows = new LinkedList<>();
+                if (errorWorkbook != null) {
+                    errorWorkbook.flush(sheetNo);
                 }
+                if (recorder != null) {
+                    long end = System.nanoTime();
+                    callbackNanos += end - start;
+                    recorder.start(clock.get());
+                    recorder.stop(end);
+                    recorder.add(ExcelMetrics.Stage.IO, Math.max(0L, recorder.elapsedNanos() - callbackNanos));
+                    MetricsRecorder.sheetComplete(metricsListeners, recorder);
+                }
+                clock.set(System.nanoTime());
             }
 
             @Override
-            public void doAfterAllAnalysed(AnalysisContext context) {
-                if (!rows.isEmpty()) {
-                    sheet.getHandler().accept(rows);
-                    rows = new LinkedList<>();
+            void abort() {
+                pending.forEach(future -> future.cancel(true));
+                pending.clear();
+                if (async != null) {
+                    async.abort();
+                }
+            }
+
+            /**
+             * 只把映射列的单元格转换为文本再读入实体；收集模式下出错的行返回null
+             */
+            private Object readEntity(int rowIndex, Object data) {
+                return readEntity(rowIndex, data, project(rowIndex, data), null);
+            }
+
+            private String[] project(int rowIndex, Object data) {
+                if (recorder == null) {
+                    return textReader.project(data, rowIndex, columnIndexes);
+                }
+                long start = System.nanoTime();
+                String[] values = textReader.project(data, rowIndex, columnIndexes);
+                recorder.add(ExcelMetrics.Stage.IO, System.nanoTime() - start);
+                return values;
+            }
+
+            /**
+             * 按块转换时出错的行先记在块中，交付时在解析线程上按行号顺序报告
+             */
+            private Object readEntity(int rowIndex, Object data, String[] values, RowBlock block) {
+                Object obj = entitySupplier.get();
+                if (errors == null) {
+                    importPlan.readRow(rowIndex, values, obj);
+                    return obj;
+                }
+                List<ExcelCellException> cellErrors = importPlan.readRowCollectingErrors(rowIndex, values, obj);
+                if (cellErrors == null) {
+                    return obj;
+                }
+                // 错误工作簿需要完整的原始行
+                Map<Integer, String> texts = errorWorkbook == null ? null : textReader.texts(data, rowIndex);
+                if (block == null) {
+                    errors.rowFailed(sheetNo, sheetName, rowIndex, texts, cellErrors);
+                } else {
+                    block.failed(rowIndex, texts, cellErrors);
+                }
+                return null;
+            }
+
+            private void deliver(RowBlock block) {
+                if (discarding) {
+                    return;
+                }
+                // 按行号顺序判断stopWhen，成立的行及其之后的行(包括出错的行)都不交给handler
+                if (stopWhen != null && block.truncate(stopWhen)) {
+                    this.discarding = true;
+                    this.ended = true;
+                }
+                block.reportFailures(errors, sheetNo, sheetName);
+                // 收集模式下整块都出错时不交给handler
+                if (block.size() > 0) {
+                    handler.accept(block);
+                }
+            }
+
+            private void submit() {
+                List<Row<Object>> block = this.rawRows;
+                this.rawRows = new ArrayList<>(initialCapacity);
+                FutureTask<RowBlock> task = new FutureTask<>(() -> {
+                    RowBlock converted = blockSupplier.get();
+                    if (lazyDicts) {
+                        // 先取出整块的文本，按需查找的字典每块只查找一次
+                        List<String[]> values = new ArrayList<>(block.size());
+                        for (Row<Object> raw : block) {
+                            values.add(project(raw.getIndex(), raw.getData()));
+                        }
+                        importPlan.prefetch(values);
+                        for (int i = 0; i < block.size(); i++) {
+                            Row<Object> raw = block.get(i);
+                            Object entity = readEntity(raw.getIndex(), raw.getData(), values.get(i), converted);
+                            if (entity != null) {
+                                converted.add(raw.getIndex(), entity);
+                            }
+                        }
+                        return converted;
+                    }
+                    for (Row<Object> raw : block) {
+                        Object entity = readEntity(raw.getIndex(), raw.getData(), project(raw.getIndex(), raw.getData()), converted);
+                        if (entity != null) {
+                            converted.add(raw.getIndex(), entity);
+                        }
+                    }
+                    return converted;
+                });
+                try {
+                    blockExecutor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    throw new ExcelException("导入线程池拒绝了数据转换任务", e);
+                }
+                pending.add(task);
+                // 按顺序交付已完成的块，积压过多时等待最早的块，避免无限缓冲
+                while (!pending.isEmpty() && (pending.size() > maxPending || pending.peek().isDone())) {
+                    deliver(await(pending.poll()));
+                }
+            }
+
+            private RowBlock await(Future<RowBlock> future) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ExcelException("等待数据转换时被中断", e);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new ExcelException("数据转换失败", cause);
                 }
             }
         };
     }
 
+    /**
+     * 一次导入的读取来源：文件或流二者之一，xls的流转存得到的临时文件在导入结束后删除
+     */
+    private static final class ReadSource {
+        private final ExcelFormat format;
+        private final File file;
+        private final InputStream inputStream;
+        private final boolean tempFile;
+
+        ReadSource(ExcelFormat format, File file, InputStream inputStream, boolean tempFile) {
+            this.format = format;
+            this.file = file;
+            this.inputStream = inputStream;
+            this.tempFile = tempFile;
+        }
+
+        void close() {
+            if (tempFile && file.exists() && !file.delete()) {
+                log.warn("删除临时文件失败 {}", file);
+            }
+        }
+    }
+
     private String nextSheetName() {
         return "sheet" + this.sheets.size();
     }
@@ -278,17 +1022,28 @@ public class ExcelImporter {
     public static class Sheet<T> {
         private ExcelImporter parent;
 
-        private Pattern sheetNamePattern; // TODO
+        private Pattern sheetNamePattern;
         private ExcelEntity<T> excelEntity;
         private Function<String, Dict> dictSupplier;
         private int block = 1;
         private Consumer<List<Row<T>>> handler;
+        private int asyncQueueCapacity = 0;
+        private boolean recycleBlock = false;
+        private int maxErrors = -1;
+        private ImportErrors errors;
+        private int limit = -1;
+        private Predicate<Row<T>> stopWhen;
+        private DuplicateHeadPolicy duplicateHeadPolicy = DuplicateHeadPolicy.ERROR;
+        private int headRowNumber = 0;
 
         public Sheet<T> parent(ExcelImporter parent) {
             this.parent = parent;
             return this;
         }
 
+        /**
+         * 按名称选择工作表，为空时按位置选择
+         */
         public Sheet<T> sheetNamePattern(Pattern sheetNamePattern) {
             this.sheetNamePattern = sheetNamePattern;
             return this;
@@ -315,17 +1070,91 @@ public class ExcelImporter {
             return this;
         }
 
+        /**
+         * 开启后，交给handler的块(List及其中的Row对象)在handler返回后会被清空复用，
+         * handler需要自行复制要保留的Row；实体对象不会被复用
+         */
+        public Sheet<T> recycleBlock(boolean recycleBlock) {
+            this.recycleBlock = recycleBlock;
+            return this;
+        }
+
+        /**
+         * handler在独立线程上异步处理块，最多排队queueCapacity个块，队列满时解析线程等待；
+         * handler抛出的异常会从startExport()抛出
+         */
+        public Sheet<T> asyncHandler(int queueCapacity) {
+            this.asyncQueueCapacity = queueCapacity;
+            return this;
+        }
+
         public Sheet<T> dictSupplier(Function<String, Dict> dictSupplier) {
             this.dictSupplier = dictSupplier;
             return this;
         }
 
+        /**
+         * 开启收集模式：必填、字典、类型转换等单元格错误不再立即中断导入，而是记录下来并跳过出错的行，
+         * 其余行照常交给handler；最多保留maxErrors条错误明细，超出部分只计数。
+         * 导入结束后通过{@link #getErrors()}或{@link ExcelImporter#getErrors()}获取
+         */
+        public Sheet<T> collectErrors(int maxErrors) {
+            this.maxErrors = Math.max(maxErrors, 0);
+            return this;
+        }
+
+        /**
+         * 最多读取limit行数据(含收集模式下出错的行)，读够后立即结束该工作表的解析；为0时只读取表头
+         */
+        public Sheet<T> limit(int limit) {
+            this.limit = limit;
+            return this;
+        }
+
+        /**
+         * 读到使predicate成立的行时结束该工作表的解析，该行及其之后的行都不交给handler。
+         * 流水线导入时predicate在解析线程上按行号顺序判断，之后已转换好的行会被丢弃
+         */
+        public Sheet<T> stopWhen(Predicate<Row<T>> stopWhen) {
+            this.stopWhen = stopWhen;
+            return this;
+        }
+
+        /**
+         * 映射的列在表头中出现多次时的处理方式，默认报错
+         */
+        public Sheet<T> duplicateHeads(DuplicateHeadPolicy duplicateHeadPolicy) {
+            this.duplicateHeadPolicy = duplicateHeadPolicy;
+            return this;
+        }
+
+        /**
+         * 表头的行数，不指定时取实体映射的表头路径的最大长度
+         */
+        public Sheet<T> headRowNumber(int headRowNumber) {
+            this.headRowNumber = headRowNumber;
+            return this;
+        }
+
+        int resolveHeadRowNumber() {
+            if (headRowNumber > 0) {
+                return headRowNumber;
+            }
+            return excelEntity == null ? 1 : excelEntity.getHeadRowNumber();
+        }
+
         public Sheet<T> copy() {
             Sheet<T> last = this;
             Sheet<T> sheet = new Sheet<>();
             this.parent.sheets.add(sheet);
-            return sheet.parent(this.parent).sheetNamePattern(last.sheetNamePattern)
-                    .excelEntity(last.getExcelEntity()).dictSupplier(last.getDictSupplier()).block(last.getBlock()).handler(last.getHandler());
+            sheet = sheet.parent(this.parent).sheetNamePattern(last.sheetNamePattern)
+                    .excelEntity(last.getExcelEntity()).dictSupplier(last.getDictSupplier()).block(last.getBlock()).handler(last.getHandler()).asyncHandler(last.getAsyncQueueCapacity()).recycleBlock(last.isRecycleBlock());
+            sheet.maxErrors = last.maxErrors;
+            sheet.limit = last.limit;
+            sheet.stopWhen = last.stopWhen;
+            sheet.duplicateHeadPolicy = last.duplicateHeadPolicy;
+            sheet.headRowNumber = last.headRowNumber;
+            return sheet;
         }
 
         public void letItGo() {
@@ -335,6 +1164,159 @@ public class ExcelImporter {
         public void startExport() {
             this.parent.startExport();
         }
+
+        public List<HeadProbe> probe() {
+            return this.parent.probe();
+        }
+    }
+
+    /**
+     * 可提前结束的工作表监听器：ended置位后hasNext返回false，EasyExcel随即中断解析，不能中断时忽略之后的行；
+     * 收尾工作放在{@link #complete()}中，正常读完或提前结束后都只执行一次。
+     * 表头行与数据行分别交给{@link #head(int, Map)}与{@link #row(int, Object)}，CSV/TSV的读取器也直接调用这两个方法
+     */
+    private abstract static class SheetListener extends AnalysisEventListener<Map<Integer, CellData>> {
+        boolean ended;
+        boolean completed;
+        boolean stoppable = true;
+        // 把原始行读为文本，EasyExcel在读到第一行时才能取得转换器
+        RowTextReader<Object> textReader;
+
+        @Override
+        public boolean hasNext(AnalysisContext context) {
+            return !ended || !stoppable;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void invokeHeadMap(Map<Integer, String> headMap, AnalysisContext context) {
+            if (textReader == null) {
+                textReader = (RowTextReader) new CellTextReader(context.currentReadHolder());
+            }
+            head(context.readRowHolder().getRowIndex(), headMap);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void invoke(Map<Integer, CellData> data, AnalysisContext context) {
+            if (textReader == null) {
+                textReader = (RowTextReader) new CellTextReader(context.currentReadHolder());
+            }
+            row(context.readRowHolder().getRowIndex(), data);
+        }
+
+        @Override
+        public void onException(Exception exception, AnalysisContext context) throws Exception {
+            abort();
+            super.onException(exception, context);
+        }
+
+        abstract void head(int rowIndex, Map<Integer, String> headMap);
+
+        abstract void row(int rowIndex, Object data);
+
+        /**
+         * 解析出错时取消尚未完成的工作
+         */
+        void abort() {
+        }
+
+        @Override
+        public void doAfterAllAnalysed(AnalysisContext context) {
+            if (!completed) {
+                completed = true;
+                complete();
+            }
+        }
+
+        abstract void complete();
+    }
+
+    /**
+     * 交给handler的一块行数据，块大小固定为block；复用时Row对象也一并复用
+     */
+    private static final class RowBlock {
+        private final List<Row<?>> rows;
+        private Row<Object>[] cache;
+        // 收集模式下块中出错的行，按行号顺序
+        private List<RowFailure> failures;
+
+        @SuppressWarnings("unchecked")
+        RowBlock(int capacity, boolean recycle) {
+            this.rows = new ArrayList<>(capacity);
+            this.cache = recycle ? new Row[capacity] : null;
+        }
+
+        void add(int index, Object data) {
+            if (cache == null) {
+                rows.add(new Row<>(index, data));
+                return;
+            }
+            int i = rows.size();
+            if (i == cache.length) {
+                cache = Arrays.copyOf(cache, Math.max(i + (i >> 1), 16));
+            }
+            Row<Object> row = cache[i];
+            if (row == null) {
+                row = cache[i] = new Row<>();
+            }
+            row.setIndex(index);
+            row.setData(data);
+            rows.add(row);
+        }
+
+        int size() {
+            return rows.size();
+        }
+
+        void failed(int rowIndex, Map<Integer, String> data, List<ExcelCellException> cellErrors) {
+            if (failures == null) {
+                failures = new ArrayList<>();
+            }
+            failures.add(new RowFailure(rowIndex, data, cellErrors));
+        }
+
+        /**
+         * 报告并清除块中出错的行
+         */
+        void reportFailures(ImportErrors errors, int sheetNo, String sheetName) {
+            if (failures == null) {
+                return;
+            }
+            for (RowFailure failure : failures) {
+                errors.rowFailed(sheetNo, sheetName, failure.rowIndex, failure.data, failure.cellErrors);
+            }
+            failures = null;
+        }
+
+        /**
+         * 从第一个满足条件的行起截断，该行之后出错的行也一并丢弃，返回是否发生了截断
+         */
+        boolean truncate(Predicate<Row<?>> predicate) {
+            for (int i = 0; i < rows.size(); i++) {
+                if (predicate.test(rows.get(i))) {
+                    int stopIndex = rows.get(i).getIndex();
+                    rows.subList(i, rows.size()).clear();
+                    if (failures != null) {
+                        failures.removeIf(failure -> failure.rowIndex > stopIndex);
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class RowFailure {
+        private final int rowIndex;
+        private final Map<Integer, String> data;
+        private final List<ExcelCellException> cellErrors;
+
+        RowFailure(int rowIndex, Map<Integer, String> data, List<ExcelCellException> cellErrors) {
+            this.rowIndex = rowIndex;
+            this.data = data;
+            this.cellErrors = cellErrors;
+        }
     }
 
 }
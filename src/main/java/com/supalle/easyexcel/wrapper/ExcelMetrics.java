@@ -0,0 +1,135 @@
+package com.supalle.easyexcel.wrapper;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次导入或导出的统计结果，只在注册了{@link ExcelMetricsListener}时采集。
+ * 各阶段耗时为所有线程上的累计值，并行时可能大于总耗时。
+ */
+@Getter
+public class ExcelMetrics {
+
+    public enum Operation {
+        EXPORT, IMPORT
+    }
+
+    public enum Stage {
+        /**
+         * 导出时getting取值
+         */
+        GETTING,
+        /**
+         * 导入时setting赋值
+         */
+        SETTING,
+        /**
+         * 自定义的formatter
+         */
+        FORMATTING,
+        /**
+         * 字典翻译
+         */
+        DICT,
+        /**
+         * 导入时没有formatter的类型转换
+         */
+        CONVERSION,
+        /**
+         * 导入时用户handler
+         */
+        HANDLER,
+        /**
+         * EasyExcel写出或解析
+         */
+        IO
+    }
+
+    private final Operation operation;
+    private final List<SheetMetrics> sheets;
+    /**
+     * 整个文件读入或写出的字节数
+     */
+    private final long bytes;
+    private final long elapsedNanos;
+    private final Throwable error;
+
+    ExcelMetrics(Operation operation, List<SheetMetrics> sheets, long bytes, long elapsedNanos, Throwable error) {
+        this.operation = operation;
+        this.sheets = Collections.unmodifiableList(sheets);
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+        this.error = error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public long getRows() {
+        return sheets.stream().mapToLong(SheetMetrics::getRows).sum();
+    }
+
+    public double getRowsPerSecond() {
+        return rate(getRows(), elapsedNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[rows=%d, bytes=%d, elapsed=%dms, success=%s, sheets=%s]",
+                operation, getRows(), bytes, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), isSuccess(), sheets);
+    }
+
+    private static double rate(long rows, long elapsedNanos) {
+        return elapsedNanos <= 0 ? 0D : rows * 1_000_000_000D / elapsedNanos;
+    }
+
+    /**
+     * 单张工作表的统计。没有字节数：xlsx的各工作表压缩在同一个zip中并共享字符串表与样式，
+     * xls与导入时的解析也按整个文件进行，无法归属到某张工作表，字节数只在{@link ExcelMetrics#getBytes()}中按整个文件统计
+     */
+    @Getter
+    public static class SheetMetrics {
+        private final Operation operation;
+        private final int sheetNo;
+        private final String sheetName;
+        private final long rows;
+        private final long skippedRows;
+        private final long errorRows;
+        private final long elapsedNanos;
+        private final Map<Stage, Long> stageNanos;
+
+        SheetMetrics(Operation operation, int sheetNo, String sheetName, long rows, long skippedRows, long errorRows,
+                     long elapsedNanos, EnumMap<Stage, Long> stageNanos) {
+            this.operation = operation;
+            this.sheetNo = sheetNo;
+            this.sheetName = sheetName;
+            this.rows = rows;
+            this.skippedRows = skippedRows;
+            this.errorRows = errorRows;
+            this.elapsedNanos = elapsedNanos;
+            this.stageNanos = Collections.unmodifiableMap(stageNanos);
+        }
+
+        public long getStageNanos(Stage stage) {
+            Long nanos = stageNanos.get(stage);
+            return nanos == null ? 0L : nanos;
+        }
+
+        public double getRowsPerSecond() {
+            return rate(rows, elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s[rows=%d, skipped=%d, errors=%d, elapsed=%dms, stages=%s]",
+                    sheetName, rows, skippedRows, errorRows, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), stageNanos);
+        }
+    }
+
+}
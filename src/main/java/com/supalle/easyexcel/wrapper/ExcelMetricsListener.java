@@ -0,0 +1,20 @@
+package com.supalle.easyexcel.wrapper;
+
+/**
+ * 导入导出统计的回调，通过{@code ExcelExporter.metricsListener(...)}或{@code ExcelImporter.metricsListener(...)}注册。
+ * 没有注册任何监听器时不会采集统计。回调抛出的异常只记录日志，不影响导入导出。
+ */
+public interface ExcelMetricsListener {
+
+    /**
+     * 一张工作表处理完毕
+     */
+    default void onSheetComplete(ExcelMetrics.SheetMetrics sheetMetrics) {
+    }
+
+    /**
+     * 一次导入或导出结束，无论成功与否都会回调
+     */
+    void onComplete(ExcelMetrics metrics);
+
+}
@@ -0,0 +1,113 @@
+package com.supalle.easyexcel.wrapper;
+
+import java.io.*;
+
+/**
+ * 按文件头的魔数判断导入文件的格式：ZIP为xlsx，OLE2为xls，其余按文本处理。
+ * 文本格式优先采用扩展名给出的CSV/TSV，没有时按首行中引号外的制表符与逗号的数量判断；
+ * 文件头中出现NUL字节的视为无法识别的二进制文件
+ */
+final class FormatDetector {
+
+    /**
+     * 判断格式时最多读取的字节数
+     */
+    static final int PEEK_SIZE = 8192;
+
+    private static final byte[] ZIP_MAGIC = {0x50, 0x4B, 0x03, 0x04};
+    private static final byte[] OLE2_MAGIC = {(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0, (byte) 0xA1, (byte) 0xB1, 0x1A, (byte) 0xE1};
+
+    private FormatDetector() {
+    }
+
+    static ExcelFormat detect(File file, ExcelFormat hint) {
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] head = new byte[PEEK_SIZE];
+            return detect(head, readFully(in, head), hint);
+        } catch (IOException e) {
+            throw new ExcelException("读取文件失败 " + file.getName(), e);
+        }
+    }
+
+    /**
+     * 流必须支持mark/reset，判断后流回到原来的位置
+     */
+    static ExcelFormat detect(InputStream in, ExcelFormat hint) {
+        try {
+            in.mark(PEEK_SIZE);
+            byte[] head = new byte[PEEK_SIZE];
+            int length = readFully(in, head);
+            in.reset();
+            return detect(head, length, hint);
+        } catch (IOException e) {
+            throw new ExcelException("读取文件流失败", e);
+        }
+    }
+
+    static ExcelFormat detect(byte[] head, int length, ExcelFormat hint) {
+        if (length == 0) {
+            throw new ExcelException("导入的文件内容为空");
+        }
+        if (startsWith(head, length, ZIP_MAGIC)) {
+            return ExcelFormat.XLSX;
+        }
+        if (startsWith(head, length, OLE2_MAGIC)) {
+            return ExcelFormat.XLS;
+        }
+        for (int i = 0; i < length; i++) {
+            if (head[i] == 0) {
+                throw new ExcelException("无法识别的文件格式，只支持xlsx、xls、csv与tsv");
+            }
+        }
+        if (hint != null && hint.isText()) {
+            return hint;
+        }
+        return sniffDelimiter(head, length);
+    }
+
+    /**
+     * 首行中引号外的制表符多于逗号时为TSV，否则为CSV
+     */
+    private static ExcelFormat sniffDelimiter(byte[] head, int length) {
+        int tabs = 0;
+        int commas = 0;
+        boolean quoted = false;
+        for (int i = 0; i < length; i++) {
+            byte b = head[i];
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (!quoted) {
+                if (b == '\n' || b == '\r') {
+                    break;
+                }
+                if (b == '\t') {
+                    tabs++;
+                } else if (b == ',') {
+                    commas++;
+                }
+            }
+        }
+        return tabs > commas ? ExcelFormat.TSV : ExcelFormat.CSV;
+    }
+
+    private static boolean startsWith(byte[] head, int length, byte[] magic) {
+        if (length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (head[i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int length = 0;
+        int n;
+        while (length < buffer.length && (n = in.read(buffer, length, buffer.length - length)) > 0) {
+            length += n;
+        }
+        return length;
+    }
+}
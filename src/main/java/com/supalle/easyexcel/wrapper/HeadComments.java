@@ -0,0 +1,159 @@
+package com.supalle.easyexcel.wrapper;
+
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+
+import java.util.*;
+
+import static com.supalle.easyexcel.wrapper.Common.isNotEmpty;
+
+/**
+ * 导出时表头的批注，每列一条，没有注释与字典的列为null。
+ * 按(列映射, 各字典及其版本, 批注中的字典项数, 字典说明工作表)渲染一次，同一实体映射的多张工作表(如copy出的)直接复用渲染好的文本
+ */
+final class HeadComments {
+
+    /**
+     * 批注框最多占用的行数，内容更多时在批注框内滚动
+     */
+    private static final int MAX_ANCHOR_ROWS = 30;
+
+    private final List<ExcelEntity.ExcelColumnMapping> excelColumnMappings;
+    private final Map<String, Dict> dicts;
+    private final Map<String, Integer> dictVersions;
+    private final int commentDictItems;
+    private final String legendSheetName;
+    private final String[] texts;
+    private final int[] lines;
+
+    private HeadComments(List<ExcelEntity.ExcelColumnMapping> excelColumnMappings, Map<String, Dict> dictMap, int commentDictItems,
+                         String legendSheetName) {
+        this.excelColumnMappings = new ArrayList<>(excelColumnMappings);
+        this.dicts = new HashMap<>(dictMap);
+        this.dictVersions = new HashMap<>(dictMap.size() * 4 / 3 + 1);
+        dictMap.forEach((dictName, dict) -> dictVersions.put(dictName, dict.version()));
+        this.commentDictItems = commentDictItems;
+        this.legendSheetName = legendSheetName;
+        this.texts = new String[excelColumnMappings.size()];
+        this.lines = new int[excelColumnMappings.size()];
+        for (int i = 0; i < texts.length; i++) {
+            List<String> comments = render(excelColumnMappings.get(i), dictMap);
+            if (!comments.isEmpty()) {
+                texts[i] = String.join("\n", comments);
+                lines[i] = comments.size();
+            }
+        }
+    }
+
+    /**
+     * 从缓存中取出与当前列映射和字典一致的批注，没有时渲染后放入缓存
+     */
+    static HeadComments of(List<HeadComments> cache, List<ExcelEntity.ExcelColumnMapping> excelColumnMappings, Map<String, Dict> dictMap,
+                           int commentDictItems, String legendSheetName) {
+        for (HeadComments headComments : cache) {
+            if (headComments.matches(excelColumnMappings, dictMap, commentDictItems, legendSheetName)) {
+                return headComments;
+            }
+        }
+        HeadComments headComments = new HeadComments(excelColumnMappings, dictMap, commentDictItems, legendSheetName);
+        cache.add(headComments);
+        return headComments;
+    }
+
+    private boolean matches(List<ExcelEntity.ExcelColumnMapping> excelColumnMappings, Map<String, Dict> dictMap, int commentDictItems,
+                            String legendSheetName) {
+        if (this.commentDictItems != commentDictItems || !Objects.equals(this.legendSheetName, legendSheetName)
+                || this.excelColumnMappings.size() != excelColumnMappings.size() || this.dicts.size() != dictMap.size()) {
+            return false;
+        }
+        for (int i = 0; i < excelColumnMappings.size(); i++) {
+            if (this.excelColumnMappings.get(i) != excelColumnMappings.get(i)) {
+                return false;
+            }
+        }
+        for (Map.Entry<String, Dict> entry : dictMap.entrySet()) {
+            Dict dict = entry.getValue();
+            if (this.dicts.get(entry.getKey()) != dict || dictVersions.get(entry.getKey()) != dict.version()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<String> render(ExcelEntity.ExcelColumnMapping<?, ?, ?> mapping, Map<String, Dict> dictMap) {
+        List<String> comments = new ArrayList<>();
+        String columnComment = mapping.getComment();
+        String dictName = mapping.getDict();
+        if (isNotEmpty(columnComment)) {
+            comments.add("注释：" + columnComment);
+        }
+        if (isNotEmpty(dictName)) {
+            Dict dict = dictMap.get(dictName);
+            String usage = mapping.isDictUsedValue() ? "值" : "标签";
+            if (legendSheetName != null) {
+                comments.add(String.format("字典：%s[%s]，字典项见工作表'%s'", dict.getComment(), usage, legendSheetName));
+                return comments;
+            }
+            comments.add(String.format("字典：%s[%s]", dict.getComment(), usage));
+            List<Dict.DictItem> dictItems = dict.isLazy() || dict.getDictItems() == null ? Collections.emptyList() : dict.getDictItems();
+            int shown = Math.min(dictItems.size(), Math.max(commentDictItems, 0));
+            if (shown > 0) {
+                comments.add("    值:标签    ");
+            }
+            StringBuilder line = new StringBuilder();
+            for (Dict.DictItem dictItem : dictItems.subList(0, shown)) {
+                line.setLength(0);
+                line.append("    [").append(dictItem.getValue()).append("]:[").append(dictItem.getLabel()).append(']');
+                if (dictItem.getComment() != null) {
+                    line.append(dictItem.getComment());
+                }
+                comments.add(line.append("    ").toString());
+            }
+            if (shown < dictItems.size()) {
+                comments.add(String.format("    ...共%d项    ", dictItems.size()));
+            }
+        }
+        return comments;
+    }
+
+    boolean isEmpty() {
+        for (String text : texts) {
+            if (text != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 把批注加到表头行的各列上，批注框从该列右侧一列开始，高度随内容行数增长
+     */
+    void apply(Sheet sheet, Row row) {
+        Drawing<?> drawing = sheet.getDrawingPatriarch();
+        if (drawing == null) {
+            drawing = sheet.createDrawingPatriarch();
+        }
+        CreationHelper creationHelper = sheet.getWorkbook().getCreationHelper();
+        int rowIndex = row.getRowNum();
+        for (int columnIndex = 0; columnIndex < texts.length; columnIndex++) {
+            if (texts[columnIndex] == null) {
+                continue;
+            }
+            ClientAnchor anchor = creationHelper.createClientAnchor();
+            anchor.setCol1(columnIndex + 1);
+            anchor.setCol2(columnIndex + 4);
+            anchor.setRow1(rowIndex);
+            anchor.setRow2(rowIndex + Math.min(lines[columnIndex], MAX_ANCHOR_ROWS) + 1);
+            Comment comment = drawing.createCellComment(anchor);
+            // 批注默认位于批注框左上角的单元格，SXSSF的setCellComment不会修正，需显式指定
+            comment.setAddress(rowIndex, columnIndex);
+            comment.setString(creationHelper.createRichTextString(texts[columnIndex]));
+            Cell cell = row.getCell(columnIndex);
+            if (cell == null) {
+                cell = row.createCell(columnIndex);
+            }
+            cell.setCellComment(comment);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.supalle.easyexcel.wrapper;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 读到的表头的索引，每列的表头是从最上层分组到列名的路径，单行表头时只有列名。
+ * 每组匹配选项只规范化一次全部表头，之后映射列按完整路径O(1)查找列索引，没有分组的映射列在完整路径匹配不上时再按列名匹配；
+ * 列名优先于别名，别名按声明的顺序，取第一个在表头中存在的名称
+ */
+final class HeadIndex {
+
+    private static final char PATH_SEPARATOR = '\u0000';
+
+    private final Map<Integer, List<String>> headPaths;
+    private final DuplicateHeadPolicy duplicateHeadPolicy;
+    private final Map<Set<HeadMatch>, Index> indexes = new HashMap<>();
+
+    HeadIndex(Map<Integer, List<String>> headPaths, DuplicateHeadPolicy duplicateHeadPolicy) {
+        this.headPaths = headPaths;
+        this.duplicateHeadPolicy = duplicateHeadPolicy == null ? DuplicateHeadPolicy.ERROR : duplicateHeadPolicy;
+    }
+
+    /**
+     * 由表头名 -> 列索引构建，用于兼容按名称给出的表头
+     */
+    static HeadIndex of(Map<String, Integer> headIndexMap) {
+        Map<Integer, List<String>> headPaths = new HashMap<>();
+        headIndexMap.forEach((headName, columnIndex) -> headPaths.put(columnIndex, Collections.singletonList(headName)));
+        return new HeadIndex(headPaths, DuplicateHeadPolicy.FIRST);
+    }
+
+    /**
+     * 由逐行读到的表头(每行为列索引 -> 单元格文本)得到每列的表头路径。
+     * 横向合并的分组只有最左边的单元格有值，空白的分组单元格沿用左边一列的分组(左边一列在其下方还有表头，且两列上层分组相同时)；
+     * 纵向合并的单元格只有最上面的有值，空白被忽略；路径中连续重复的名称(如EasyExcel写出的合并表头)只保留一个
+     */
+    static Map<Integer, List<String>> headPaths(List<Map<Integer, String>> headRows) {
+        int depth = headRows.size();
+        SortedSet<Integer> columnIndexes = new TreeSet<>();
+        headRows.forEach(headRow -> columnIndexes.addAll(headRow.keySet()));
+
+        Map<Integer, List<String>> headPaths = new TreeMap<>();
+        String[] left = null;
+        int leftIndex = -2;
+        for (Integer columnIndex : columnIndexes) {
+            String[] cells = new String[depth];
+            for (int r = 0; r < depth; r++) {
+                String cell = headRows.get(r).get(columnIndex);
+                cells[r] = cell == null || cell.trim().length() == 0 ? null : cell;
+            }
+            if (left != null && leftIndex == columnIndex - 1) {
+                for (int r = 0; r < depth - 1; r++) {
+                    if (cells[r] == null && left[r] != null && hasBelow(left, r) && samePrefix(cells, left, r)) {
+                        cells[r] = left[r];
+                    }
+                }
+            }
+            List<String> headPath = new ArrayList<>(depth);
+            for (String cell : cells) {
+                if (cell != null && (headPath.isEmpty() || !headPath.get(headPath.size() - 1).trim().equals(cell.trim()))) {
+                    headPath.add(cell);
+                }
+            }
+            if (!headPath.isEmpty()) {
+                headPaths.put(columnIndex, headPath);
+            }
+            left = cells;
+            leftIndex = columnIndex;
+        }
+        return headPaths;
+    }
+
+    private static boolean hasBelow(String[] cells, int row) {
+        for (int r = row + 1; r < cells.length; r++) {
+            if (cells[r] != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean samePrefix(String[] cells, String[] left, int row) {
+        for (int r = 0; r < row; r++) {
+            if (!Objects.equals(cells[r], left[r])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    Map<Integer, List<String>> getHeadPaths() {
+        return headPaths;
+    }
+
+    /**
+     * 列索引 -> 表头，多行表头时为以'/'连接的完整路径
+     */
+    Map<Integer, String> getHeadMap() {
+        Map<Integer, String> headMap = new TreeMap<>();
+        headPaths.forEach((columnIndex, headPath) -> headMap.put(columnIndex, String.join("/", headPath)));
+        return headMap;
+    }
+
+    DuplicateHeadPolicy getDuplicateHeadPolicy() {
+        return duplicateHeadPolicy;
+    }
+
+    /**
+     * 映射列匹配到的全部列，按列索引排序；没有匹配时为空
+     */
+    List<Integer> candidates(ExcelEntity<?> excelEntity, ExcelEntity.ExcelColumnMapping<?, ?, ?> mapping) {
+        Set<HeadMatch> options = mapping.getHeadMatch() != null ? mapping.getHeadMatch()
+                : excelEntity.getHeadMatch() != null ? excelEntity.getHeadMatch() : Collections.emptySet();
+        Index index = indexes.computeIfAbsent(options, this::buildIndex);
+        List<String> headPath = mapping.getHeadPath();
+        List<String> names = new ArrayList<>();
+        names.add(headPath.get(headPath.size() - 1));
+        if (mapping.getAliases() != null) {
+            names.addAll(mapping.getAliases());
+        }
+        for (String name : names) {
+            headPath.set(headPath.size() - 1, name);
+            List<Integer> columnIndexes = index.paths.get(key(headPath, options));
+            if (columnIndexes != null) {
+                return columnIndexes;
+            }
+        }
+        if (headPath.size() == 1) {
+            for (String name : names) {
+                List<Integer> columnIndexes = index.names.get(HeadMatch.normalize(name, options));
+                if (columnIndexes != null) {
+                    return columnIndexes;
+                }
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * 映射列的列索引，缺少时返回null；匹配到多列时按重复表头策略选择，策略为ERROR时抛出异常
+     */
+    Integer columnIndex(ExcelEntity<?> excelEntity, ExcelEntity.ExcelColumnMapping<?, ?, ?> mapping) {
+        List<Integer> columnIndexes = candidates(excelEntity, mapping);
+        if (columnIndexes.isEmpty()) {
+            return null;
+        }
+        if (columnIndexes.size() == 1 || duplicateHeadPolicy == DuplicateHeadPolicy.FIRST) {
+            return columnIndexes.get(0);
+        }
+        if (duplicateHeadPolicy == DuplicateHeadPolicy.LAST) {
+            return columnIndexes.get(columnIndexes.size() - 1);
+        }
+        String columns = columnIndexes.stream().map(columnIndex -> String.valueOf(columnIndex + 1)).collect(Collectors.joining("、"));
+        throw new ExcelException(String.format("'%s'列在表头中重复出现，位于第%s列", String.join("/", mapping.getHeadPath()), columns));
+    }
+
+    private Index buildIndex(Set<HeadMatch> options) {
+        Index index = new Index(headPaths.size());
+        new TreeMap<>(headPaths).forEach((columnIndex, headPath) -> {
+            String name = HeadMatch.normalize(headPath.get(headPath.size() - 1), options);
+            if (name != null && name.length() > 0) {
+                index.paths.computeIfAbsent(key(headPath, options), k -> new ArrayList<>(1)).add(columnIndex);
+                index.names.computeIfAbsent(name, k -> new ArrayList<>(1)).add(columnIndex);
+            }
+        });
+        return index;
+    }
+
+    private static String key(List<String> headPath, Set<HeadMatch> options) {
+        if (headPath.size() == 1) {
+            return HeadMatch.normalize(headPath.get(0), options);
+        }
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < headPath.size(); i++) {
+            if (i > 0) {
+                key.append(PATH_SEPARATOR);
+            }
+            key.append(HeadMatch.normalize(headPath.get(i), options));
+        }
+        return key.toString();
+    }
+
+    private static final class Index {
+        // 完整路径 -> 列索引
+        private final Map<String, List<Integer>> paths;
+        // 列名 -> 列索引
+        private final Map<String, List<Integer>> names;
+
+        Index(int size) {
+            this.paths = new HashMap<>(size * 4 / 3 + 1);
+            this.names = new HashMap<>(size * 4 / 3 + 1);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.supalle.easyexcel.wrapper;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 导入时表头的匹配选项，表头与映射的列名(及别名)按选项规范化后再比较；不论选项如何，首尾空白总是忽略
+ */
+public enum HeadMatch {
+    /**
+     * 忽略大小写
+     */
+    IGNORE_CASE,
+    /**
+     * 全角字符按半角比较，如'（'与'('、'Ａ'与'A'
+     */
+    IGNORE_WIDTH,
+    /**
+     * 忽略全部空白，包括中间的空格、换行与全角空格
+     */
+    IGNORE_WHITESPACE;
+
+    static String normalize(String head, Set<HeadMatch> options) {
+        if (head == null) {
+            return null;
+        }
+        if (options.isEmpty()) {
+            return head.trim();
+        }
+        boolean ignoreWidth = options.contains(IGNORE_WIDTH);
+        boolean ignoreWhitespace = options.contains(IGNORE_WHITESPACE);
+        StringBuilder builder = new StringBuilder(head.length());
+        for (int i = 0; i < head.length(); i++) {
+            char c = head.charAt(i);
+            if (ignoreWidth) {
+                if (c == '\u3000') {
+                    c = ' ';
+                } else if (c >= '\uFF01' && c <= '\uFF5E') {
+                    c = (char) (c - 0xFEE0);
+                }
+            }
+            if (ignoreWhitespace && (Character.isWhitespace(c) || Character.isSpaceChar(c))) {
+                continue;
+            }
+            builder.append(c);
+        }
+        String normalized = builder.toString().trim();
+        return options.contains(IGNORE_CASE) ? normalized.toLowerCase(Locale.ROOT) : normalized;
+    }
+}
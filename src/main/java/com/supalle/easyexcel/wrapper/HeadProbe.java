@@ -0,0 +1,83 @@
+package com.supalle.easyexcel.wrapper;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.*;
+
+/**
+ * {@link ExcelImporter#probe()}的结果：一张工作表检测到的表头及其与实体映射的对应情况
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HeadProbe {
+    private int sheetNo;
+    private String sheetName;
+    /**
+     * 列索引 -> 表头，按列的顺序
+     */
+    private Map<Integer, String> heads;
+    /**
+     * 映射列 -> 列索引
+     */
+    private Map<String, Integer> mappedHeads;
+    /**
+     * 表头中存在但实体没有映射的列
+     */
+    private List<String> unmappedHeads;
+    /**
+     * 实体映射了但表头中缺少的列
+     */
+    private List<String> missingHeads;
+    /**
+     * 实体映射的列在表头中出现了多次，且重复表头策略为报错
+     */
+    private List<String> duplicateHeads;
+
+    /**
+     * 实体映射的列都能在表头中唯一确定
+     */
+    public boolean isComplete() {
+        return (missingHeads == null || missingHeads.isEmpty()) && (duplicateHeads == null || duplicateHeads.isEmpty());
+    }
+
+    static HeadProbe of(int sheetNo, String sheetName, ExcelEntity<?> excelEntity, HeadIndex headIndex) {
+        Map<Integer, String> heads = new TreeMap<>();
+        headIndex.getHeadMap().forEach((columnIndex, head) -> {
+            if (head != null && head.trim().length() > 0) {
+                heads.put(columnIndex, head);
+            }
+        });
+
+        DuplicateHeadPolicy policy = headIndex.getDuplicateHeadPolicy();
+        Map<String, Integer> mappedHeads = new LinkedHashMap<>();
+        List<String> missingHeads = new ArrayList<>();
+        List<String> duplicateHeads = new ArrayList<>();
+        if (excelEntity != null && excelEntity.getExcelColumnMappings() != null) {
+            for (ExcelEntity.ExcelColumnMapping<?, ?, ?> mapping : excelEntity.getExcelColumnMappings()) {
+                String headName = String.valueOf(mapping.getHeadName()).trim();
+                List<Integer> candidates = headIndex.candidates(excelEntity, mapping);
+                if (candidates.isEmpty()) {
+                    missingHeads.add(headName);
+                    continue;
+                }
+                if (candidates.size() > 1 && policy == DuplicateHeadPolicy.ERROR) {
+                    duplicateHeads.add(headName);
+                }
+                mappedHeads.put(headName, policy == DuplicateHeadPolicy.LAST ? candidates.get(candidates.size() - 1) : candidates.get(0));
+            }
+        }
+        Set<Integer> mappedColumns = new HashSet<>(mappedHeads.values());
+        List<String> unmappedHeads = new ArrayList<>();
+        heads.forEach((columnIndex, head) -> {
+            if (!mappedColumns.contains(columnIndex)) {
+                unmappedHeads.add(head);
+            }
+        });
+        return new HeadProbe(sheetNo, sheetName, heads, mappedHeads, unmappedHeads, missingHeads, duplicateHeads);
+    }
+}
@@ -0,0 +1,22 @@
+package com.supalle.easyexcel.wrapper;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 收集模式下记录的一条导入错误；缺少表头时headName为缺少的列，rowIndex为表头所在行
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportError {
+    private int sheetNo;
+    private String sheetName;
+    private int rowIndex;
+    private String headName;
+    private String rawValue;
+    private String reason;
+}
@@ -0,0 +1,92 @@
+package com.supalle.easyexcel.wrapper;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一个导入工作表配置在收集模式下的导入错误(按名称匹配时可能来自多张工作表)，最多保留maxErrors条明细，超出部分只计数。
+ * 流水线导入时各块并行转换，出错的行仍在块交付时按行号顺序记录，保留的是最先出现的maxErrors条。
+ */
+public class ImportErrors {
+
+    private final int maxErrors;
+    private final List<ImportError> errors = new ArrayList<>();
+    private long errorCount;
+    private long errorRows;
+    private FailedRowListener failedRowListener;
+
+    ImportErrors(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    void failedRowListener(FailedRowListener failedRowListener) {
+        this.failedRowListener = failedRowListener;
+    }
+
+    synchronized void add(int sheetNo, String sheetName, int rowIndex, String headName, String rawValue, String reason) {
+        errorCount++;
+        if (errors.size() < maxErrors) {
+            errors.add(new ImportError(sheetNo, sheetName, rowIndex, headName, rawValue, reason));
+        }
+    }
+
+    /**
+     * 记录出错的一行及其全部单元格错误
+     */
+    void rowFailed(int sheetNo, String sheetName, int rowIndex, Map<Integer, String> data, List<ExcelCellException> cellErrors) {
+        synchronized (this) {
+            errorRows++;
+            for (ExcelCellException e : cellErrors) {
+                add(sheetNo, sheetName, e.getRowIndex(), e.getHeadName(), e.getRawValue(), e.getMessage());
+            }
+        }
+        if (failedRowListener != null) {
+            failedRowListener.rowFailed(sheetNo, rowIndex, data, cellErrors);
+        }
+    }
+
+    public int getMaxErrors() {
+        return maxErrors;
+    }
+
+    /**
+     * 保留的错误明细，按工作表与行号排序
+     */
+    public synchronized List<ImportError> getErrors() {
+        List<ImportError> list = new ArrayList<>(errors);
+        list.sort(Comparator.comparingInt(ImportError::getSheetNo).thenComparingInt(ImportError::getRowIndex));
+        return list;
+    }
+
+    /**
+     * 错误总数，包括超出maxErrors未保留明细的部分
+     */
+    public synchronized long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * 出错被跳过的行数
+     */
+    public synchronized long getErrorRows() {
+        return errorRows;
+    }
+
+    public synchronized boolean hasErrors() {
+        return errorCount > 0;
+    }
+
+    public synchronized boolean isTruncated() {
+        return errorCount > errors.size();
+    }
+
+    /**
+     * 出错行的监听，如写出错误工作簿
+     */
+    interface FailedRowListener {
+        void rowFailed(int sheetNo, int rowIndex, Map<Integer, String> data, List<ExcelCellException> cellErrors);
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.supalle.easyexcel.wrapper;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 把统计结果保存在内存中的监听器，适用于测试或临时排查
+ */
+public class InMemoryMetricsListener implements ExcelMetricsListener {
+
+    private final List<ExcelMetrics> runs = new CopyOnWriteArrayList<>();
+    private final List<ExcelMetrics.SheetMetrics> sheets = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void onSheetComplete(ExcelMetrics.SheetMetrics sheetMetrics) {
+        sheets.add(sheetMetrics);
+    }
+
+    @Override
+    public void onComplete(ExcelMetrics metrics) {
+        runs.add(metrics);
+    }
+
+    public List<ExcelMetrics> getRuns() {
+        return runs;
+    }
+
+    public List<ExcelMetrics.SheetMetrics> getSheets() {
+        return sheets;
+    }
+
+    /**
+     * 最近一次导入或导出的统计，没有时返回Null
+     */
+    public ExcelMetrics getLast() {
+        return runs.isEmpty() ? null : runs.get(runs.size() - 1);
+    }
+
+    public void clear() {
+        runs.clear();
+        sheets.clear();
+    }
+
+}
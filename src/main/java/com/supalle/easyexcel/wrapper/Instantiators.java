@@ -0,0 +1,75 @@
+package com.supalle.easyexcel.wrapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.*;
+import java.lang.reflect.Constructor;
+import java.util.function.Supplier;
+
+/**
+ * 实体创建器，按实体类型生成并缓存无参构造的{@link Supplier}。
+ * 优先通过{@link LambdaMetafactory}生成与{@code Foo::new}等价的实现，不可用时(如构造器不可访问)退回到反射。
+ */
+@Slf4j
+public class Instantiators {
+
+    private static final ClassValue<Supplier<?>> CACHE = new ClassValue<Supplier<?>>() {
+        @Override
+        protected Supplier<?> computeValue(Class<?> type) {
+            return create(type);
+        }
+    };
+
+    @SuppressWarnings("unchecked")
+    public static <E> Supplier<E> of(Class<E> type) {
+        return (Supplier<E>) CACHE.get(type);
+    }
+
+    private static Supplier<?> create(Class<?> type) {
+        Constructor<?> constructor;
+        try {
+            constructor = type.getDeclaredConstructor();
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            throw new ExcelException(String.format("实体类型'%s'没有空参构造器。", type.getName()));
+        }
+        if (isVisible(type)) {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                MethodHandle handle = lookup.unreflectConstructor(constructor);
+                CallSite callSite = LambdaMetafactory.metafactory(lookup, "get", MethodType.methodType(Supplier.class),
+                        MethodType.methodType(Object.class), handle, MethodType.methodType(type));
+                return (Supplier<?>) callSite.getTarget().invokeExact();
+            } catch (Throwable e) {
+                log.debug("实体类型'{}'无法生成构造函数引用，使用反射创建对象", type.getName(), e);
+            }
+        }
+        try {
+            constructor.setAccessible(true);
+        } catch (RuntimeException e) {
+            log.error(e.getMessage(), e);
+            throw new ExcelException(String.format("实体类型'%s'的空参构造器不可访问。", type.getName()));
+        }
+        return () -> {
+            try {
+                return constructor.newInstance();
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+                throw new ExcelException(String.format("实体类型'%s'创建对象失败。", type.getName()));
+            }
+        };
+    }
+
+    /**
+     * 生成的实现类定义在本类的类加载器中，实体类型由子类加载器(如应用容器、插件)加载时在其中不可见，
+     * 直到第一次调用get()才会抛出NoClassDefFoundError，此时只能使用反射
+     */
+    private static boolean isVisible(Class<?> type) {
+        try {
+            return Class.forName(type.getName(), false, Instantiators.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,218 @@
+package com.supalle.easyexcel.wrapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 单张工作表的统计采集器，可被多个转换线程同时使用。
+ * 只在注册了监听器时创建，导入导出计划据此编译出带计时的版本，未注册时没有任何计时开销。
+ */
+@Slf4j
+final class MetricsRecorder {
+
+    private static final ExcelMetrics.Stage[] STAGES = ExcelMetrics.Stage.values();
+
+    private final ExcelMetrics.Operation operation;
+    private final int sheetNo;
+    private final String sheetName;
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder skippedRows = new LongAdder();
+    private final LongAdder errorRows = new LongAdder();
+    private final LongAdder[] stageNanos = new LongAdder[STAGES.length];
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    MetricsRecorder(ExcelMetrics.Operation operation, int sheetNo, String sheetName) {
+        this.operation = operation;
+        this.sheetNo = sheetNo;
+        this.sheetName = sheetName;
+        for (int i = 0; i < stageNanos.length; i++) {
+            stageNanos[i] = new LongAdder();
+        }
+    }
+
+    void start(long nanos) {
+        if (startNanos == 0L) {
+            startNanos = nanos;
+        }
+    }
+
+    void stop(long nanos) {
+        endNanos = nanos;
+    }
+
+    long elapsedNanos() {
+        return startNanos == 0L ? 0L : (endNanos == 0L ? System.nanoTime() : endNanos) - startNanos;
+    }
+
+    void row() {
+        rows.increment();
+    }
+
+    void skippedRow() {
+        skippedRows.increment();
+    }
+
+    void errorRow() {
+        errorRows.increment();
+    }
+
+    void add(ExcelMetrics.Stage stage, long nanos) {
+        stageNanos[stage.ordinal()].add(nanos);
+    }
+
+    <T, R> Function<T, R> timedFunction(ExcelMetrics.Stage stage, Function<T, R> function) {
+        if (function == null) {
+            return null;
+        }
+        LongAdder adder = stageNanos[stage.ordinal()];
+        return t -> {
+            long start = System.nanoTime();
+            try {
+                return function.apply(t);
+            } finally {
+                adder.add(System.nanoTime() - start);
+            }
+        };
+    }
+
+    <T, U> BiConsumer<T, U> timedBiConsumer(ExcelMetrics.Stage stage, BiConsumer<T, U> consumer) {
+        if (consumer == null) {
+            return null;
+        }
+        LongAdder adder = stageNanos[stage.ordinal()];
+        return (t, u) -> {
+            long start = System.nanoTime();
+            try {
+                consumer.accept(t, u);
+            } finally {
+                adder.add(System.nanoTime() - start);
+            }
+        };
+    }
+
+    <T> Consumer<T> timedConsumer(ExcelMetrics.Stage stage, Consumer<T> consumer) {
+        if (consumer == null) {
+            return null;
+        }
+        LongAdder adder = stageNanos[stage.ordinal()];
+        return t -> {
+            long start = System.nanoTime();
+            try {
+                consumer.accept(t);
+            } finally {
+                adder.add(System.nanoTime() - start);
+            }
+        };
+    }
+
+    ExcelMetrics.SheetMetrics snapshot() {
+        EnumMap<ExcelMetrics.Stage, Long> stages = new EnumMap<>(ExcelMetrics.Stage.class);
+        for (ExcelMetrics.Stage stage : STAGES) {
+            stages.put(stage, stageNanos[stage.ordinal()].sum());
+        }
+        return new ExcelMetrics.SheetMetrics(operation, sheetNo, sheetName, rows.sum(), skippedRows.sum(), errorRows.sum(),
+                elapsedNanos(), stages);
+    }
+
+    static void sheetComplete(List<ExcelMetricsListener> listeners, MetricsRecorder recorder) {
+        ExcelMetrics.SheetMetrics sheetMetrics = recorder.snapshot();
+        for (ExcelMetricsListener listener : listeners) {
+            try {
+                listener.onSheetComplete(sheetMetrics);
+            } catch (RuntimeException e) {
+                log.warn("统计监听器处理工作表统计失败", e);
+            }
+        }
+    }
+
+    static void complete(List<ExcelMetricsListener> listeners, ExcelMetrics metrics) {
+        for (ExcelMetricsListener listener : listeners) {
+            try {
+                listener.onComplete(metrics);
+            } catch (RuntimeException e) {
+                log.warn("统计监听器处理统计结果失败", e);
+            }
+        }
+    }
+
+    /**
+     * 统计写出字节数
+     */
+    static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * 统计读入字节数
+     */
+    static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.supalle.easyexcel.wrapper;
+
+import java.util.Map;
+
+/**
+ * 把解析器读到的一行原始数据读为文本，导入时只转换映射列
+ *
+ * @param <R> 原始行的类型，EasyExcel为列索引 -> 单元格，CSV为字段数组
+ */
+interface RowTextReader<R> {
+
+    /**
+     * 只转换columnIndexes指定的列，按其顺序放入数组
+     */
+    String[] project(R row, int rowIndex, int[] columnIndexes);
+
+    /**
+     * 转换整行，用于写出错误工作簿等需要原始行的场合
+     */
+    Map<Integer, String> texts(R row, int rowIndex);
+
+}
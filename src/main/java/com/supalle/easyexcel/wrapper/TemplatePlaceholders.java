@@ -0,0 +1,84 @@
+package com.supalle.easyexcel.wrapper;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * 模板工作表中的占位符：{.列名}填充数据行，{变量名}填充只出现一次的值。
+ * 按EasyExcel的规则解析，以\转义的花括号不是占位符，带前缀的{前缀.列名}只用于FillWrapper，不计入数据行占位符
+ */
+final class TemplatePlaceholders {
+
+    private boolean rows;
+    private boolean variables;
+
+    private TemplatePlaceholders() {
+    }
+
+    /**
+     * 扫描模板的第sheetNo张工作表，模板中没有该工作表时两类占位符都没有
+     */
+    static TemplatePlaceholders scan(Workbook template, int sheetNo) {
+        TemplatePlaceholders placeholders = new TemplatePlaceholders();
+        if (template == null || sheetNo >= template.getNumberOfSheets()) {
+            return placeholders;
+        }
+        Sheet sheet = template.getSheetAt(sheetNo);
+        for (Row row : sheet) {
+            for (Cell cell : row) {
+                if (cell.getCellTypeEnum() == CellType.STRING) {
+                    placeholders.parse(cell.getStringCellValue());
+                    if (placeholders.rows && placeholders.variables) {
+                        return placeholders;
+                    }
+                }
+            }
+        }
+        return placeholders;
+    }
+
+    /**
+     * 模板导出时每张工作表都要按{.列名}填充数据行，设置了填充变量时还需要{变量名}
+     */
+    void check(int sheetNo, boolean hasVariables) {
+        if (!rows) {
+            throw new ExcelException(String.format("模板的第%d张工作表中没有{.列名}占位符", sheetNo));
+        }
+        if (hasVariables && !variables) {
+            throw new ExcelException(String.format("模板的第%d张工作表中没有{变量名}占位符", sheetNo));
+        }
+    }
+
+    private void parse(String value) {
+        int length = value.length();
+        int start = 0;
+        while (start < length) {
+            int prefix = value.indexOf('{', start);
+            if (prefix < 0) {
+                return;
+            }
+            if (prefix > 0 && value.charAt(prefix - 1) == '\\') {
+                start = prefix + 1;
+                continue;
+            }
+            int suffix = prefix;
+            do {
+                suffix = value.indexOf('}', suffix + 1);
+                if (suffix < 0) {
+                    return;
+                }
+            } while (value.charAt(suffix - 1) == '\\');
+            String variable = value.substring(prefix + 1, suffix);
+            int dot = variable.indexOf('.');
+            if (dot < 0) {
+                variables |= !variable.isEmpty();
+            } else if (dot == 0) {
+                rows |= variable.length() > 1;
+            }
+            start = suffix + 1;
+        }
+    }
+}
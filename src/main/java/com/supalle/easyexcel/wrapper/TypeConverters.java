@@ -0,0 +1,118 @@
+package com.supalle.easyexcel.wrapper;
+
+import cn.hutool.core.convert.Convert;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalQuery;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 单元格文本到Java类型的转换器。
+ * 常用类型使用快速解析，解析不了的(包括空白文本)再交给hutool的{@link Convert}，保证结果与其一致。
+ */
+public class TypeConverters {
+
+    private static final DateTimeFormatter[] DATE_FORMATTERS = {
+            DateTimeFormatter.ISO_LOCAL_DATE, ExcelConstant.DATE
+    };
+
+    private static final DateTimeFormatter[] DATE_TIME_FORMATTERS = {
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"), DateTimeFormatter.ISO_LOCAL_DATE_TIME, ExcelConstant.DATE_TIME
+    };
+
+    @SuppressWarnings("unchecked")
+    public static <T> Function<String, T> of(Class<T> type) {
+        if (type == null || type == String.class || type == Object.class || type == CharSequence.class) {
+            return s -> (T) s;
+        }
+        if (type == Integer.class || type == int.class) {
+            return (Function<String, T>) fastPath(type, s -> Integer.valueOf(s.trim()));
+        }
+        if (type == Long.class || type == long.class) {
+            return (Function<String, T>) fastPath(type, s -> Long.valueOf(s.trim()));
+        }
+        if (type == Double.class || type == double.class) {
+            return (Function<String, T>) fastPath(type, s -> Double.valueOf(s.trim()));
+        }
+        if (type == BigDecimal.class) {
+            return (Function<String, T>) fastPath(type, s -> new BigDecimal(s.trim()));
+        }
+        if (type == BigInteger.class) {
+            return (Function<String, T>) fastPath(type, s -> new BigInteger(s.trim()));
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return (Function<String, T>) fastPath(type, TypeConverters::parseBoolean);
+        }
+        if (type == LocalDate.class) {
+            return (Function<String, T>) temporal(LocalDate.class, LocalDate::from, DATE_FORMATTERS);
+        }
+        if (type == LocalDateTime.class) {
+            return (Function<String, T>) temporal(LocalDateTime.class, LocalDateTime::from, DATE_TIME_FORMATTERS);
+        }
+        if (type.isEnum()) {
+            Map<String, Object> constants = new HashMap<>();
+            for (T constant : type.getEnumConstants()) {
+                constants.put(((Enum<?>) constant).name(), constant);
+            }
+            return (Function<String, T>) fastPath(type, s -> {
+                Object constant = constants.get(s.trim());
+                if (constant == null) {
+                    throw new IllegalArgumentException(s);
+                }
+                return constant;
+            });
+        }
+        return s -> Convert.convert(type, s);
+    }
+
+    private static Function<String, Object> fastPath(Class<?> type, Function<String, ?> parser) {
+        boolean primitive = type.isPrimitive();
+        return s -> {
+            if (s == null) {
+                return primitive ? Convert.convert(type, null) : null;
+            }
+            if (!s.isEmpty()) {
+                try {
+                    return parser.apply(s);
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    // 交给通用转换
+                }
+            }
+            return Convert.convert(type, s);
+        };
+    }
+
+    private static Function<String, Object> temporal(Class<?> type, TemporalQuery<?> query, DateTimeFormatter[] formatters) {
+        return fastPath(type, s -> {
+            String value = s.trim();
+            DateTimeParseException last = null;
+            for (DateTimeFormatter formatter : formatters) {
+                try {
+                    return formatter.parse(value, query);
+                } catch (DateTimeParseException e) {
+                    last = e;
+                }
+            }
+            throw last;
+        });
+    }
+
+    private static Boolean parseBoolean(String s) {
+        String value = s.trim();
+        if ("true".equalsIgnoreCase(value)) {
+            return Boolean.TRUE;
+        }
+        if ("false".equalsIgnoreCase(value)) {
+            return Boolean.FALSE;
+        }
+        throw new IllegalArgumentException(s);
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.supalle.easyexcel.wrapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 异步块处理器：按提交顺序处理，handler的异常在下一次提交或finish时抛出，队列满时阻塞提交方
+ */
+class AsyncBlockHandlerTest {
+
+    @Test
+    void processesInOrder() {
+        List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+        AsyncBlockHandler<Integer> handler = new AsyncBlockHandler<>(handled::add, 2, "test-async");
+        for (int i = 0; i < 100; i++) {
+            handler.accept(i);
+        }
+        handler.finish();
+        assertEquals(100, handled.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, handled.get(i));
+        }
+    }
+
+    @Test
+    void finishWithoutBlocks() {
+        new AsyncBlockHandler<Integer>(block -> fail("不应处理任何块"), 2, "test-async").finish();
+    }
+
+    @Test
+    void errorSurfacesOnNextAccept() throws InterruptedException {
+        CountDownLatch failed = new CountDownLatch(1);
+        AtomicInteger handled = new AtomicInteger();
+        AsyncBlockHandler<Integer> handler = new AsyncBlockHandler<>(block -> {
+            if (block == 1) {
+                failed.countDown();
+                throw new IllegalStateException("处理第1块失败");
+            }
+            handled.incrementAndGet();
+        }, 4, "test-async");
+        handler.accept(0);
+        handler.accept(1);
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+
+        IllegalStateException e = null;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        // 异常在handler返回后才记录，下一次提交可能恰好早于记录
+        while (e == null && System.nanoTime() < deadline) {
+            try {
+                handler.accept(2);
+                Thread.sleep(10);
+            } catch (IllegalStateException ex) {
+                e = ex;
+            }
+        }
+        assertNotNull(e);
+        assertEquals("处理第1块失败", e.getMessage());
+        assertThrows(IllegalStateException.class, handler::finish);
+        // 出错后提交的块不再处理
+        assertEquals(1, handled.get());
+    }
+
+    @Test
+    void errorSurfacesOnFinish() {
+        AsyncBlockHandler<Integer> handler = new AsyncBlockHandler<>(block -> {
+            throw new IllegalArgumentException("处理失败");
+        }, 2, "test-async");
+        handler.accept(0);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, handler::finish);
+        assertEquals("处理失败", e.getMessage());
+    }
+
+    @Test
+    void errorIsRethrownAsIs() {
+        AsyncBlockHandler<Integer> handler = new AsyncBlockHandler<>(block -> {
+            throw new AssertionError("断言失败");
+        }, 2, "test-async");
+        handler.accept(0);
+        assertThrows(AssertionError.class, handler::finish);
+    }
+
+    @Test
+    void fullQueueBlocksAccept() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch taken = new CountDownLatch(1);
+        List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+        AsyncBlockHandler<Integer> handler = new AsyncBlockHandler<>(block -> {
+            taken.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handled.add(block);
+        }, 1, "test-async");
+        handler.accept(0);
+        assertTrue(taken.await(5, TimeUnit.SECONDS));
+        handler.accept(1);
+
+        CountDownLatch submitted = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            handler.accept(2);
+            submitted.countDown();
+        });
+        producer.start();
+        // 处理线程占着第0块，队列中有第1块，第2块只能等待
+        assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(submitted.await(5, TimeUnit.SECONDS));
+        producer.join();
+        handler.finish();
+        assertEquals(Arrays.asList(0, 1, 2), handled);
+    }
+
+    @Test
+    void abortDiscardsPendingBlocks() throws InterruptedException {
+        CountDownLatch taken = new CountDownLatch(1);
+        List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+        AsyncBlockHandler<Integer> handler = new AsyncBlockHandler<>(block -> {
+            taken.countDown();
+            try {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handled.add(block);
+        }, 4, "test-async");
+        handler.accept(0);
+        handler.accept(1);
+        handler.accept(2);
+        assertTrue(taken.await(5, TimeUnit.SECONDS));
+        long start = System.nanoTime();
+        handler.abort();
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(Collections.singletonList(0), handled);
+    }
+}
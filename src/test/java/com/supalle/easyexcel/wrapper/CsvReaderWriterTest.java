@@ -0,0 +1,107 @@
+package com.supalle.easyexcel.wrapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CsvWriter写出后由CsvReader读回，字段内容保持不变
+ */
+class CsvReaderWriterTest {
+
+    @Test
+    void roundTripQuotedFields() throws IOException {
+        List<List<String>> rows = Arrays.asList(
+                Arrays.asList("编号", "名称", "备注"),
+                Arrays.asList("1", "a,b", "说\"你好\""),
+                Arrays.asList("2", "第一行\r\n第二行", "只有\n换行"),
+                Arrays.asList("3", "\"", "末尾\r"),
+                Arrays.asList("4", null, "tab\t不需要引号"));
+        assertRows(rows, read(write(rows, ','), ','));
+    }
+
+    @Test
+    void roundTripTsv() throws IOException {
+        List<List<String>> rows = Arrays.asList(
+                Arrays.asList("编号", "名称"),
+                Arrays.asList("1", "a\tb"),
+                Arrays.asList("2", "a,b"));
+        String text = write(rows, '\t');
+        assertTrue(text.contains("\"a\tb\""));
+        assertTrue(text.contains("\ta,b\r\n"));
+        assertRows(rows, read(text, '\t'));
+    }
+
+    @Test
+    void writesDoubledQuotesAndCrLf() throws IOException {
+        assertEquals("a,\"b,c\",\"d\"\"e\"\r\n", write(Arrays.asList(Arrays.asList("a", "b,c", "d\"e")), ','));
+    }
+
+    @Test
+    void skipsBom() throws IOException {
+        List<String[]> rows = read("\uFEFF编号,名称\r\n1,a\r\n", ',');
+        assertArrayEquals(new String[]{"编号", "名称"}, rows.get(0));
+        assertArrayEquals(new String[]{"1", "a"}, rows.get(1));
+    }
+
+    @Test
+    void blankLinesAreCounted() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a,b\n\n,\r\nc,d"), ',');
+        assertArrayEquals(new String[]{"a", "b"}, reader.next());
+        String[] empty = reader.next();
+        assertArrayEquals(new String[]{null}, empty);
+        assertTrue(CsvReader.isBlank(empty));
+        assertTrue(CsvReader.isBlank(reader.next()));
+        assertArrayEquals(new String[]{"c", "d"}, reader.next());
+        assertEquals(3, reader.getRowIndex());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void lineEndings() throws IOException {
+        List<String[]> rows = read("a\rb\nc\r\nd", ',');
+        assertEquals(4, rows.size());
+        assertArrayEquals(new String[]{"d"}, rows.get(3));
+    }
+
+    @Test
+    void unclosedQuote() {
+        ExcelException e = assertThrows(ExcelException.class, () -> read("a\n\"b,c\n", ','));
+        assertEquals("第2行的引号没有闭合", e.getMessage());
+    }
+
+    private static String write(List<List<String>> rows, char delimiter) throws IOException {
+        StringWriter out = new StringWriter();
+        try (CsvWriter writer = new CsvWriter(out, delimiter)) {
+            for (List<String> row : rows) {
+                writer.writeRow(row);
+            }
+        }
+        return out.toString();
+    }
+
+    private static List<String[]> read(String text, char delimiter) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (CsvReader reader = new CsvReader(new StringReader(text), delimiter)) {
+            String[] row;
+            while ((row = reader.next()) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static void assertRows(List<List<String>> expected, List<String[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), Arrays.asList(actual.get(i)), "第" + i + "行");
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.supalle.easyexcel.wrapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 字典缓存：同一字典并发请求只加载一次，加载失败或返回null时不缓存，超出容量或过期时淘汰
+ */
+class DictCacheTest {
+
+    private static Dict dict(String dictName) {
+        return new Dict(dictName, dictName, Collections.singletonList(new Dict.DictItem("1", dictName + "1", null)));
+    }
+
+    /**
+     * 记录每个字典的加载次数
+     */
+    private static final class CountingLoader implements Function<String, Dict> {
+        private final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+        @Override
+        public Dict apply(String dictName) {
+            counts.computeIfAbsent(dictName, k -> new AtomicInteger()).incrementAndGet();
+            return dict(dictName);
+        }
+
+        int count(String dictName) {
+            AtomicInteger count = counts.get(dictName);
+            return count == null ? 0 : count.get();
+        }
+    }
+
+    @Test
+    void concurrentRequestsLoadOnce() throws Exception {
+        int threads = 8;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        DictCache dictCache = DictCache.of(dictName -> {
+            loads.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return dict(dictName);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Dict>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> dictCache.apply("sex")));
+            }
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            // 给其余线程时间进入等待
+            Thread.sleep(100);
+            release.countDown();
+            Dict first = futures.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<Dict> future : futures) {
+                assertSame(first, future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, dictCache.size());
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+        DictCache dictCache = DictCache.of(dictName -> {
+            if (loads.incrementAndGet() == 1) {
+                throw new IllegalStateException("字典服务不可用");
+            }
+            return dict(dictName);
+        });
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> dictCache.apply("sex"));
+        assertEquals("字典服务不可用", e.getMessage());
+        assertEquals(0, dictCache.size());
+        assertEquals("sex", dictCache.apply("sex").getDictName());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void nullLoadIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+        DictCache dictCache = DictCache.of(dictName -> {
+            loads.incrementAndGet();
+            return null;
+        });
+        assertNull(dictCache.apply("sex"));
+        assertNull(dictCache.apply("sex"));
+        assertEquals(2, loads.get());
+        assertEquals(0, dictCache.size());
+    }
+
+    @Test
+    void recursiveLoadFails() {
+        AtomicReference<DictCache> self = new AtomicReference<>();
+        DictCache dictCache = DictCache.of(dictName -> self.get().apply(dictName));
+        self.set(dictCache);
+        ExcelException e = assertThrows(ExcelException.class, () -> dictCache.apply("sex"));
+        assertTrue(e.getMessage().contains("sex"), e.getMessage());
+        assertEquals(0, dictCache.size());
+    }
+
+    @Test
+    void evictsEarliestLoaded() {
+        CountingLoader loader = new CountingLoader();
+        DictCache dictCache = DictCache.of(loader).maximumSize(2);
+        dictCache.apply("a");
+        dictCache.apply("b");
+        dictCache.apply("c");
+        assertEquals(2, dictCache.size());
+
+        dictCache.apply("b");
+        dictCache.apply("c");
+        assertEquals(1, loader.count("b"));
+        assertEquals(1, loader.count("c"));
+        dictCache.apply("a");
+        assertEquals(2, loader.count("a"));
+    }
+
+    @Test
+    void expiresAndInvalidates() {
+        CountingLoader loader = new CountingLoader();
+        DictCache dictCache = DictCache.of(loader).expireAfterWrite(Duration.ZERO);
+        dictCache.apply("sex");
+        dictCache.apply("sex");
+        assertEquals(2, loader.count("sex"));
+
+        dictCache.expireAfterWrite(null);
+        dictCache.apply("sex");
+        assertEquals(2, loader.count("sex"));
+        dictCache.invalidate("sex");
+        dictCache.apply("sex");
+        assertEquals(3, loader.count("sex"));
+    }
+
+    @Test
+    void cachesValueIndex() {
+        DictCache dictCache = DictCache.of(DictCacheTest::dict);
+        Dict dict = dictCache.apply("sex");
+        assertSame(dict.getValueIndex(), dictCache.apply("sex").getValueIndex());
+        assertEquals("sex1", dict.getValueIndex().get("1").getLabel());
+    }
+}
@@ -0,0 +1,142 @@
+package com.supalle.easyexcel.wrapper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 按需查找的字典：批量查找、缓存与淘汰，以及完整索引的访问限制
+ */
+class DictLookupTest {
+
+    /**
+     * 值为数字文本、标签为"P"加值的解析器，记录每次查找的键
+     */
+    private static final class RecordingResolver implements DictResolver {
+        private final List<Collection<String>> calls = new ArrayList<>();
+
+        @Override
+        public Map<String, Dict.DictItem> resolveValues(Collection<String> values) {
+            calls.add(new ArrayList<>(values));
+            Map<String, Dict.DictItem> items = new HashMap<>();
+            for (String value : values) {
+                if (value.chars().allMatch(Character::isDigit)) {
+                    items.put(value, new Dict.DictItem(value, "P" + value, null));
+                }
+            }
+            return items;
+        }
+
+        @Override
+        public Map<String, Dict.DictItem> resolveLabels(Collection<String> labels) {
+            calls.add(new ArrayList<>(labels));
+            Map<String, Dict.DictItem> items = new HashMap<>();
+            for (String label : labels) {
+                items.put(label, new Dict.DictItem(label.substring(1), label, null));
+            }
+            return items;
+        }
+    }
+
+    @Test
+    void prefetchResolvesMissingKeysOnce() {
+        RecordingResolver resolver = new RecordingResolver();
+        DictLookup lookup = Dict.builder().dictName("product").resolver(resolver).build().getValueLookup();
+        lookup.prefetch(Arrays.asList("1", "2", "1", null, "x"));
+        assertEquals(Collections.singletonList(Arrays.asList("1", "2", "x")), resolver.calls);
+
+        assertEquals("P1", lookup.get("1").getLabel());
+        assertNull(lookup.get("x"));
+        lookup.prefetch(Arrays.asList("1", "2", "x"));
+        assertEquals(1, resolver.calls.size());
+
+        assertEquals("P3", lookup.get("3").getLabel());
+        assertEquals(Arrays.asList("3"), resolver.calls.get(1));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        RecordingResolver resolver = new RecordingResolver();
+        DictLookup lookup = Dict.builder().dictName("product").resolver(resolver).cacheSize(2).build().getValueLookup();
+        lookup.prefetch(Arrays.asList("1", "2"));
+        lookup.get("1");
+        lookup.prefetch(Arrays.asList("3"));
+        resolver.calls.clear();
+        lookup.prefetch(Arrays.asList("1", "2", "3"));
+        assertEquals(Collections.singletonList(Arrays.asList("2")), resolver.calls);
+    }
+
+    @Test
+    void labelLookup() {
+        Dict dict = Dict.builder().dictName("product").resolver(new RecordingResolver()).build();
+        assertEquals("7", dict.getLabelLookup().get("P7").getValue());
+    }
+
+    @Test
+    void lazyDictHasNoIndexes() {
+        Dict dict = Dict.builder().dictName("product").resolver(new RecordingResolver()).build();
+        assertTrue(dict.isLazy());
+        assertThrows(ExcelException.class, dict::getValueIndex);
+        assertThrows(ExcelException.class, dict::getLabelIndex);
+        assertThrows(ExcelException.class, dict::getIgnoreCaseLabelIndex);
+        assertNull(dict.getValueIndex(Integer.class));
+        assertNotNull(dict.toString());
+    }
+
+    @Test
+    void eagerDictHasNoLookup() {
+        Dict dict = new Dict("sex", "性别", Arrays.asList(new Dict.DictItem("1", "男", null)));
+        assertEquals("男", dict.getValueIndex().get("1").getLabel());
+        assertThrows(ExcelException.class, dict::getValueLookup);
+    }
+
+    public static class Product {
+        private Integer id;
+        private String code;
+    }
+
+    @Test
+    void exportReadsEachValueOnce(@TempDir Path dir) throws Exception {
+        RecordingResolver resolver = new RecordingResolver();
+        Dict dict = Dict.builder().dictName("product").comment("产品").resolver(resolver).build();
+        AtomicInteger gets = new AtomicInteger();
+        ExcelEntity<Product> entity = ExcelEntity.of(Product.class)
+                .mapping("编号", Integer.class).getting(p -> p.id).setting((p, v) -> p.id = v)
+                .mapping("产品").dict("product").getting(p -> {
+                    gets.incrementAndGet();
+                    return p.code;
+                }).setting((p, v) -> p.code = v)
+                .build();
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Product product = new Product();
+            product.id = i;
+            product.code = String.valueOf(i % 7);
+            products.add(product);
+        }
+        products.add(null);
+
+        File file = dir.resolve("products.xlsx").toFile();
+        try (OutputStream out = new FileOutputStream(file)) {
+            ExcelExporter.create().outputStream(out).format(ExcelFormat.XLSX).defaultDictSupplier(name -> dict)
+                    .sheet(entity).data(products).flushSize(10).startImport();
+        }
+        assertEquals(25, gets.get());
+        // 第一批已查到全部7个值，之后的批次都命中缓存
+        assertEquals(1, resolver.calls.size());
+
+        List<Product> read = new ArrayList<>();
+        ExcelImporter.create().inFile(file).defaultDictSupplier(name -> dict)
+                .sheet(entity).handler(rows -> rows.forEach(row -> read.add(row.getData()))).startExport();
+        assertEquals(25, read.size());
+        assertEquals("3", read.get(10).code);
+    }
+}
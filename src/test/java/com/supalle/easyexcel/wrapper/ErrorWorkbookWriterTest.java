@@ -0,0 +1,131 @@
+package com.supalle.easyexcel.wrapper;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 错误工作簿：保留原始列，末尾为源行号与错误信息，出错的单元格带批注；流水线导入时出错的行仍按行号顺序写出
+ */
+class ErrorWorkbookWriterTest {
+
+    private static final int ROWS = 300;
+
+    @TempDir
+    File tempDir;
+
+    public static class RawItem {
+        private String id;
+        private String name;
+    }
+
+    public static class Item {
+        private Integer id;
+        private String name;
+    }
+
+    private static ExcelEntity<Item> entity() {
+        return ExcelEntity.of(Item.class)
+                .mapping("编号", Integer.class).getting(item -> item.id).setting((item, v) -> item.id = v)
+                .mapping("名称").required(true).getting(item -> item.name).setting((item, v) -> item.name = v)
+                .build();
+    }
+
+    private static boolean badId(int i) {
+        return i % 7 == 2;
+    }
+
+    private static boolean noName(int i) {
+        return i % 11 == 5;
+    }
+
+    private File workbook(boolean withErrors) throws IOException {
+        List<RawItem> items = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            RawItem item = new RawItem();
+            item.id = withErrors && badId(i) ? "x" + i : String.valueOf(i);
+            item.name = withErrors && noName(i) ? null : "名称" + i;
+            items.add(item);
+        }
+        ExcelEntity<RawItem> rawEntity = ExcelEntity.of(RawItem.class)
+                .mapping("编号").getting(item -> item.id).setting((item, v) -> item.id = v)
+                .mapping("名称").getting(item -> item.name).setting((item, v) -> item.name = v)
+                .build();
+        File file = new File(tempDir, withErrors ? "items.xlsx" : "valid.xlsx");
+        try (OutputStream out = new FileOutputStream(file)) {
+            ExcelExporter.create().outputStream(out).format(ExcelFormat.XLSX).sheet("明细", rawEntity).data(items).startImport();
+        }
+        return file;
+    }
+
+    @Test
+    void writesFailedRowsInOrderWithComments() throws IOException {
+        File file = workbook(true);
+        for (int parallelism : new int[]{1, 4}) {
+            File errorFile = new File(tempDir, "errors" + parallelism + ".xlsx");
+            ExcelImporter.create().inFile(file).parallelism(parallelism).errorWorkbook(errorFile)
+                    .sheet(entity()).block(16).handler(rows -> {
+                    }).startExport();
+
+            DataFormatter formatter = new DataFormatter();
+            try (InputStream in = new FileInputStream(errorFile); Workbook workbook = new XSSFWorkbook(in)) {
+                Sheet sheet = workbook.getSheet("明细");
+                assertNotNull(sheet);
+                Row head = sheet.getRow(0);
+                assertEquals(Arrays.asList("编号", "名称", ErrorWorkbookWriter.ROW_NUMBER_HEAD, ErrorWorkbookWriter.MESSAGE_HEAD),
+                        Arrays.asList(formatter.formatCellValue(head.getCell(0)), formatter.formatCellValue(head.getCell(1)),
+                                formatter.formatCellValue(head.getCell(2)), formatter.formatCellValue(head.getCell(3))));
+
+                int rowNum = 1;
+                for (int i = 0; i < ROWS; i++) {
+                    if (!badId(i) && !noName(i)) {
+                        continue;
+                    }
+                    Row row = sheet.getRow(rowNum++);
+                    String context = "parallelism=" + parallelism + " i=" + i;
+                    assertNotNull(row, context);
+                    // 源行号与Excel中显示的一致：表头占第1行
+                    assertEquals(String.valueOf(i + 2), formatter.formatCellValue(row.getCell(2)), context);
+                    assertEquals(badId(i) ? "x" + i : String.valueOf(i), formatter.formatCellValue(row.getCell(0)), context);
+                    assertFalse(formatter.formatCellValue(row.getCell(3)).isEmpty(), context);
+                    assertEquals(badId(i), hasComment(row.getCell(0)), context);
+                    assertEquals(noName(i), hasComment(row.getCell(1)), context);
+                    assertFalse(hasComment(row.getCell(2)), context);
+                }
+                assertEquals(rowNum - 1, sheet.getLastRowNum());
+            }
+        }
+    }
+
+    @Test
+    void noErrorsNoFile() throws IOException {
+        File file = workbook(false);
+        File errorFile = new File(tempDir, "errors.xlsx");
+        List<Integer> ids = new ArrayList<>();
+        ExcelImporter.create().inFile(file).errorWorkbook(errorFile)
+                .sheet(entity()).handler(rows -> rows.forEach(row -> ids.add(row.getData().id))).startExport();
+        assertEquals(ROWS, ids.size());
+        assertFalse(errorFile.exists());
+    }
+
+    private static boolean hasComment(Cell cell) {
+        return cell != null && cell.getCellComment() != null;
+    }
+}
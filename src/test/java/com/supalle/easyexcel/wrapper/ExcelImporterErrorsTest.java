@@ -0,0 +1,160 @@
+package com.supalle.easyexcel.wrapper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 收集模式：出错的行记录后跳过，明细数量受maxErrors限制，流水线导入时按行号顺序保留最先出现的错误
+ */
+class ExcelImporterErrorsTest {
+
+    private static final int ROWS = 40;
+
+    @TempDir
+    File tempDir;
+
+    public static class RawItem {
+        private String id;
+        private String name;
+    }
+
+    public static class Item {
+        private Integer id;
+        private String name;
+    }
+
+    private static ExcelEntity<Item> entity() {
+        return ExcelEntity.of(Item.class)
+                .mapping("编号", Integer.class).getting(item -> item.id).setting((item, v) -> item.id = v)
+                .mapping("名称").required(true).getting(item -> item.name).setting((item, v) -> item.name = v)
+                .build();
+    }
+
+    /**
+     * 第i条数据在i % 4 == 1时编号不是数字，i % 10 == 3时名称为空
+     */
+    private File workbook() throws IOException {
+        List<RawItem> items = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            RawItem item = new RawItem();
+            item.id = i % 4 == 1 ? "x" + i : String.valueOf(i);
+            item.name = i % 10 == 3 ? null : "名称" + i;
+            items.add(item);
+        }
+        ExcelEntity<RawItem> rawEntity = ExcelEntity.of(RawItem.class)
+                .mapping("编号").getting(item -> item.id).setting((item, v) -> item.id = v)
+                .mapping("名称").getting(item -> item.name).setting((item, v) -> item.name = v)
+                .build();
+        File file = new File(tempDir, "items.xlsx");
+        try (OutputStream out = new FileOutputStream(file)) {
+            ExcelExporter.create().outputStream(out).format(ExcelFormat.XLSX).sheet(rawEntity).data(items).startImport();
+        }
+        return file;
+    }
+
+    private static boolean failed(int i) {
+        return i % 4 == 1 || i % 10 == 3;
+    }
+
+    @Test
+    void failFastWithoutCollectMode() throws IOException {
+        File file = workbook();
+        // 非收集模式下第一个单元格错误即中断导入，EasyExcel会再包装一层
+        RuntimeException e = assertThrows(RuntimeException.class, () -> ExcelImporter.create().inFile(file)
+                .sheet(entity()).handler(rows -> {
+                }).startExport());
+        Throwable cause = e;
+        while (cause != null && !(cause instanceof ExcelCellException)) {
+            cause = cause.getCause();
+        }
+        assertNotNull(cause, e.toString());
+        assertEquals("x1", ((ExcelCellException) cause).getRawValue());
+    }
+
+    @Test
+    void collectsAllErrors() throws IOException {
+        File file = workbook();
+        List<Integer> ids = new ArrayList<>();
+        ExcelImporter importer = ExcelImporter.create().inFile(file);
+        ExcelImporter.Sheet<Item> sheet = importer.sheet(entity()).collectErrors(100)
+                .handler(rows -> rows.forEach(row -> ids.add(row.getData().id)));
+        importer.startExport();
+
+        List<Integer> expected = new ArrayList<>();
+        long failedRows = 0;
+        long cellErrors = 0;
+        for (int i = 0; i < ROWS; i++) {
+            if (failed(i)) {
+                failedRows++;
+                // 编号与名称都出错的行记录两条错误
+                cellErrors += (i % 4 == 1 ? 1 : 0) + (i % 10 == 3 ? 1 : 0);
+            } else {
+                expected.add(i);
+            }
+        }
+        assertEquals(expected, ids);
+        ImportErrors errors = sheet.getErrors();
+        assertEquals(failedRows, errors.getErrorRows());
+        assertEquals(cellErrors, errors.getErrorCount());
+        assertEquals(cellErrors, errors.getErrors().size());
+        assertFalse(errors.isTruncated());
+        assertEquals(errors.getErrors(), importer.getErrors());
+
+        // 编号为x1的第1条数据在表头下一行
+        ImportError first = errors.getErrors().get(0);
+        assertEquals(2, first.getRowIndex());
+        assertEquals("编号", first.getHeadName());
+        assertEquals("x1", first.getRawValue());
+    }
+
+    @Test
+    void keepsAtMostMaxErrors() throws IOException {
+        File file = workbook();
+        for (int parallelism : new int[]{1, 3}) {
+            List<Integer> ids = Collections.synchronizedList(new ArrayList<>());
+            ExcelImporter importer = ExcelImporter.create().inFile(file).parallelism(parallelism);
+            ExcelImporter.Sheet<Item> sheet = importer.sheet(entity()).collectErrors(5).block(4)
+                    .handler(rows -> rows.forEach(row -> ids.add(row.getData().id)));
+            importer.startExport();
+
+            ImportErrors errors = sheet.getErrors();
+            assertEquals(5, errors.getErrors().size());
+            assertTrue(errors.isTruncated());
+            assertTrue(errors.getErrorCount() > 5);
+            assertEquals(errors.getErrorCount(), importer.getErrorCount());
+            // 块并行转换，保留的仍是行号最小的5条
+            List<Integer> rowIndexes = errors.getErrors().stream().map(ImportError::getRowIndex).collect(Collectors.toList());
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < ROWS && expected.size() < 5; i++) {
+                if (failed(i)) {
+                    expected.add(i + 1);
+                }
+            }
+            assertEquals(expected, rowIndexes, "parallelism=" + parallelism);
+            assertEquals(ROWS - errors.getErrorRows(), ids.size());
+        }
+    }
+
+    @Test
+    void collectErrorsZeroOnlyCounts() throws IOException {
+        File file = workbook();
+        ExcelImporter importer = ExcelImporter.create().inFile(file);
+        ExcelImporter.Sheet<Item> sheet = importer.sheet(entity()).collectErrors(0).handler(rows -> {
+        });
+        importer.startExport();
+        assertTrue(sheet.getErrors().getErrors().isEmpty());
+        assertTrue(sheet.getErrors().hasErrors());
+        assertTrue(sheet.getErrors().isTruncated());
+    }
+}
@@ -0,0 +1,129 @@
+package com.supalle.easyexcel.wrapper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流水线导入：各块在线程池中乱序完成，handler仍按行号顺序收到，积压的块不超过parallelism*2
+ */
+class ExcelImporterPipelineTest {
+
+    private static final int ROWS = 2000;
+    private static final int BLOCK = 10;
+
+    @TempDir
+    File tempDir;
+
+    public static class Item {
+        private Integer id;
+    }
+
+    private static ExcelEntity<Item> entity() {
+        return ExcelEntity.of(Item.class)
+                .mapping("编号", Integer.class).getting(item -> item.id).setting((item, v) -> item.id = v)
+                .build();
+    }
+
+    private File workbook() throws IOException {
+        List<Item> items = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Item item = new Item();
+            item.id = i;
+            items.add(item);
+        }
+        File file = new File(tempDir, "items.xlsx");
+        try (OutputStream out = new FileOutputStream(file)) {
+            ExcelExporter.create().outputStream(out).format(ExcelFormat.XLSX).sheet(entity()).data(items).startImport();
+        }
+        return file;
+    }
+
+    @Test
+    void deliversInOrderWithBoundedPending() throws Exception {
+        File file = workbook();
+        for (int parallelism : new int[]{2, 4}) {
+            ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+            Random random = new Random(parallelism);
+            AtomicInteger submitted = new AtomicInteger();
+            AtomicInteger delivered = new AtomicInteger();
+            AtomicInteger maxPending = new AtomicInteger();
+            List<Integer> ids = new ArrayList<>(ROWS);
+            List<Integer> indexes = new ArrayList<>(ROWS);
+            try {
+                ExcelImporter.create().inFile(file).parallelism(parallelism)
+                        .executor(task -> {
+                            // 提交新块时，已提交但尚未交付的块数
+                            maxPending.accumulateAndGet(submitted.getAndIncrement() - delivered.get(), Math::max);
+                            long delay = random.nextInt(3);
+                            pool.execute(() -> {
+                                try {
+                                    TimeUnit.MILLISECONDS.sleep(delay);
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                }
+                                task.run();
+                            });
+                        })
+                        .sheet(entity()).block(BLOCK)
+                        .handler(rows -> {
+                            delivered.incrementAndGet();
+                            rows.forEach(row -> {
+                                ids.add(row.getData().id);
+                                indexes.add(row.getIndex());
+                            });
+                        })
+                        .startExport();
+            } finally {
+                pool.shutdownNow();
+            }
+
+            String context = "parallelism=" + parallelism;
+            assertEquals(ROWS / BLOCK, submitted.get(), context);
+            assertEquals(ROWS / BLOCK, delivered.get(), context);
+            assertEquals(ROWS, ids.size(), context);
+            for (int i = 0; i < ROWS; i++) {
+                assertEquals(Integer.valueOf(i), ids.get(i), context);
+                // 行号从表头的下一行开始
+                assertEquals(Integer.valueOf(i + 1), indexes.get(i), context);
+            }
+            assertTrue(maxPending.get() <= parallelism * 2, context + " maxPending=" + maxPending.get());
+        }
+    }
+
+    @Test
+    void conversionErrorStopsImport() throws IOException {
+        File file = workbook();
+        AtomicInteger delivered = new AtomicInteger();
+        ExcelEntity<Item> failing = ExcelEntity.of(Item.class)
+                .mapping("编号", Integer.class).getting(item -> item.id).setting((item, v) -> {
+                    if (v == 555) {
+                        throw new IllegalStateException("第555条转换失败");
+                    }
+                    item.id = v;
+                })
+                .build();
+        RuntimeException e = assertThrows(RuntimeException.class, () -> ExcelImporter.create().inFile(file).parallelism(3)
+                .sheet(failing).block(BLOCK).handler(rows -> delivered.incrementAndGet()).startExport());
+        Throwable cause = e;
+        while (cause != null && !(cause instanceof IllegalStateException)) {
+            cause = cause.getCause();
+        }
+        assertNotNull(cause, e.toString());
+        // 出错的块之前的块都已按顺序交付，之后的不再交付
+        assertEquals(555 / BLOCK, delivered.get());
+    }
+}
@@ -0,0 +1,112 @@
+package com.supalle.easyexcel.wrapper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 多张工作表导入时，某张工作表因limit或stopWhen提前结束后从下一张工作表继续读取
+ */
+class ExcelImporterResumeTest {
+
+    private static final int SHEETS = 3;
+    private static final int ROWS = 50;
+
+    @TempDir
+    File tempDir;
+
+    public static class Item {
+        private Integer sheet;
+        private Integer id;
+    }
+
+    private static ExcelEntity<Item> entity() {
+        return ExcelEntity.of(Item.class)
+                .mapping("工作表", Integer.class).getting(item -> item.sheet).setting((item, v) -> item.sheet = v)
+                .mapping("编号", Integer.class).getting(item -> item.id).setting((item, v) -> item.id = v)
+                .build();
+    }
+
+    private File workbook(ExcelFormat format) throws IOException {
+        File file = new File(tempDir, "items." + format.name().toLowerCase());
+        try (OutputStream out = new FileOutputStream(file)) {
+            ExcelExporter exporter = ExcelExporter.create().outputStream(out).format(format);
+            for (int s = 0; s < SHEETS; s++) {
+                List<Item> items = new ArrayList<>(ROWS);
+                for (int i = 0; i < ROWS; i++) {
+                    Item item = new Item();
+                    item.sheet = s;
+                    item.id = i;
+                    items.add(item);
+                }
+                exporter.sheet("明细" + s, entity()).data(items);
+            }
+            exporter.startImport();
+        }
+        return file;
+    }
+
+    @Test
+    void limitResumesWithNextSheet() throws IOException {
+        for (ExcelFormat format : Arrays.asList(ExcelFormat.XLSX, ExcelFormat.XLS)) {
+            File file = workbook(format);
+            for (int parallelism : new int[]{1, 3}) {
+                List<Row<Item>> rows = new ArrayList<>();
+                ExcelImporter.create().inFile(file).parallelism(parallelism)
+                        .sheet("明细\\d", entity()).block(8).limit(10).handler(rows::addAll).startExport();
+                String message = format + " parallelism=" + parallelism;
+                assertEquals(SHEETS * 10, rows.size(), message);
+                for (int s = 0; s < SHEETS; s++) {
+                    assertEquals(ids(0, 10), idsOf(rows, s), message);
+                }
+            }
+        }
+    }
+
+    @Test
+    void stopWhenResumesWithNextSheet() throws IOException {
+        for (ExcelFormat format : Arrays.asList(ExcelFormat.XLSX, ExcelFormat.XLS)) {
+            File file = workbook(format);
+            for (int parallelism : new int[]{1, 3}) {
+                List<Row<Item>> rows = new ArrayList<>();
+                ExcelImporter.create().inFile(file).parallelism(parallelism)
+                        .sheet("明细\\d", entity()).block(8).stopWhen(row -> row.getData().id == 20 + row.getData().sheet)
+                        .handler(rows::addAll).startExport();
+                String message = format + " parallelism=" + parallelism;
+                for (int s = 0; s < SHEETS; s++) {
+                    assertEquals(ids(0, 20 + s), idsOf(rows, s), message);
+                }
+            }
+        }
+    }
+
+    @Test
+    void limitZeroReadsOnlyHeads() throws IOException {
+        List<Row<Item>> rows = new ArrayList<>();
+        ExcelImporter.create().inFile(workbook(ExcelFormat.XLSX))
+                .sheet("明细\\d", entity()).limit(0).handler(rows::addAll).startExport();
+        assertEquals(0, rows.size());
+    }
+
+    private static List<Integer> idsOf(List<Row<Item>> rows, int sheet) {
+        return rows.stream().map(Row::getData).filter(item -> item.sheet == sheet).map(item -> item.id).collect(Collectors.toList());
+    }
+
+    private static List<Integer> ids(int from, int to) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            ids.add(i);
+        }
+        return ids;
+    }
+}
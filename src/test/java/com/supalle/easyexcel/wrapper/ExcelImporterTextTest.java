@@ -0,0 +1,70 @@
+package com.supalle.easyexcel.wrapper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CSV导入的工作表选择：文件名作为工作表名称，从流读取时没有名称
+ */
+class ExcelImporterTextTest {
+
+    private static final String CSV = "编号,名称\n1,甲\n2,乙\n";
+
+    public static class Item {
+        private Integer id;
+        private String name;
+    }
+
+    private static ExcelEntity<Item> entity() {
+        return ExcelEntity.of(Item.class)
+                .mapping("编号", Integer.class).getting(item -> item.id).setting((item, v) -> item.id = v)
+                .mapping("名称").getting(item -> item.name).setting((item, v) -> item.name = v)
+                .build();
+    }
+
+    private static ByteArrayInputStream stream() {
+        return new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void streamReadsPositionalSheet() {
+        List<Item> items = new ArrayList<>();
+        ExcelImporter.create().inputStream(stream()).format(ExcelFormat.CSV)
+                .sheet(entity()).handler(rows -> rows.forEach(row -> items.add(row.getData()))).startExport();
+        assertEquals(2, items.size());
+        assertEquals("乙", items.get(1).name);
+    }
+
+    @Test
+    void streamRejectsSheetNamePattern() {
+        ExcelException e = assertThrows(ExcelException.class, () -> ExcelImporter.create().inputStream(stream()).format(ExcelFormat.CSV)
+                .sheet("明细.*", entity()).handler(rows -> {
+                }).startExport());
+        assertTrue(e.getMessage().contains("明细.*"), e.getMessage());
+    }
+
+    @Test
+    void fileNameIsSheetName(@TempDir File dir) throws IOException {
+        File file = new File(dir, "detail2024.csv");
+        Files.write(file.toPath(), CSV.getBytes(StandardCharsets.UTF_8));
+        List<Item> items = new ArrayList<>();
+        ExcelImporter.create().inFile(file)
+                .sheet("detail\\d+", entity()).handler(rows -> rows.forEach(row -> items.add(row.getData()))).startExport();
+        assertEquals(2, items.size());
+
+        List<Item> none = new ArrayList<>();
+        ExcelImporter.create().inFile(file)
+                .sheet("summary", entity()).handler(rows -> rows.forEach(row -> none.add(row.getData()))).startExport();
+        assertTrue(none.isEmpty());
+    }
+}
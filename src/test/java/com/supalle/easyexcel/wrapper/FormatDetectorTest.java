@@ -0,0 +1,136 @@
+package com.supalle.easyexcel.wrapper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 导入文件格式的判断：按魔数区分xlsx与xls，文本文件按扩展名或首行判断分隔符，以及xls的大小限制
+ */
+class FormatDetectorTest {
+
+    @TempDir
+    File tempDir;
+
+    public static class Item {
+        private Integer id;
+        private String name;
+    }
+
+    private static ExcelEntity<Item> entity() {
+        return ExcelEntity.of(Item.class)
+                .mapping("编号", Integer.class).getting(item -> item.id).setting((item, v) -> item.id = v)
+                .mapping("名称").getting(item -> item.name).setting((item, v) -> item.name = v)
+                .build();
+    }
+
+    private static ExcelFormat detect(byte[] head, ExcelFormat hint) {
+        return FormatDetector.detect(head, head.length, hint);
+    }
+
+    private static byte[] text(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void magicBytes() {
+        byte[] zip = {0x50, 0x4B, 0x03, 0x04, 0x14, 0x00, 0x06, 0x00};
+        byte[] ole2 = {(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0, (byte) 0xA1, (byte) 0xB1, 0x1A, (byte) 0xE1, 0x00};
+        assertEquals(ExcelFormat.XLSX, detect(zip, null));
+        assertEquals(ExcelFormat.XLS, detect(ole2, null));
+        // 魔数优先于扩展名
+        assertEquals(ExcelFormat.XLSX, detect(zip, ExcelFormat.CSV));
+        assertEquals(ExcelFormat.XLS, detect(ole2, ExcelFormat.XLSX));
+        // 不完整的魔数按文本处理
+        assertEquals(ExcelFormat.CSV, detect(new byte[]{0x50, 0x4B, 0x03}, null));
+    }
+
+    @Test
+    void rejectsEmptyAndBinary() {
+        ExcelException empty = assertThrows(ExcelException.class, () -> detect(new byte[0], null));
+        assertEquals("导入的文件内容为空", empty.getMessage());
+        assertThrows(ExcelException.class, () -> detect(new byte[]{0x25, 0x50, 0x44, 0x46, 0x00, 0x01}, ExcelFormat.CSV));
+    }
+
+    @Test
+    void textDelimiter() {
+        assertEquals(ExcelFormat.CSV, detect(text("编号,名称\n1,甲"), null));
+        assertEquals(ExcelFormat.TSV, detect(text("编号\t名称\n1\t甲"), null));
+        // 引号中的逗号不计入，只看首行
+        assertEquals(ExcelFormat.TSV, detect(text("\"a,b,c\"\tx\ty\n1,2,3,4,5"), null));
+        // 扩展名给出的文本格式优先，非文本的扩展名不采用
+        assertEquals(ExcelFormat.CSV, detect(text("编号\t名称"), ExcelFormat.CSV));
+        assertEquals(ExcelFormat.CSV, detect(text("编号,名称"), ExcelFormat.XLSX));
+    }
+
+    @Test
+    void streamIsReset() throws IOException {
+        byte[] content = text("编号\t名称\n1\t甲\n");
+        InputStream in = new BufferedInputStream(new ByteArrayInputStream(content));
+        assertEquals(ExcelFormat.TSV, FormatDetector.detect(in, null));
+        byte[] read = new byte[content.length];
+        assertEquals(content.length, in.read(read));
+        assertArrayEquals(content, read);
+    }
+
+    private File workbook(ExcelFormat format, int rows) throws IOException {
+        List<Item> items = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Item item = new Item();
+            item.id = i;
+            item.name = "名称" + i;
+            items.add(item);
+        }
+        // 扩展名与内容不符，导入时按魔数判断
+        File file = new File(tempDir, "items-" + format.name().toLowerCase() + ".csv");
+        try (OutputStream out = new FileOutputStream(file)) {
+            ExcelExporter.create().outputStream(out).format(format).sheet(entity()).data(items).startImport();
+        }
+        return file;
+    }
+
+    private static List<Item> read(ExcelImporter importer) {
+        List<Item> items = new ArrayList<>();
+        importer.sheet(entity()).handler(rows -> rows.forEach(row -> items.add(row.getData()))).startExport();
+        return items;
+    }
+
+    @Test
+    void detectsByContentNotExtension() throws IOException {
+        assertEquals(20, read(ExcelImporter.create().inFile(workbook(ExcelFormat.XLSX, 20))).size());
+        assertEquals(20, read(ExcelImporter.create().inFile(workbook(ExcelFormat.XLS, 20))).size());
+    }
+
+    @Test
+    void rejectsOversizeXls() throws IOException {
+        File xls = workbook(ExcelFormat.XLS, 2000);
+        long limit = xls.length() / 2;
+        ExcelException fromFile = assertThrows(ExcelException.class,
+                () -> read(ExcelImporter.create().inFile(xls).maxXlsSize(limit)));
+        assertTrue(fromFile.getMessage().contains(String.valueOf(limit)), fromFile.getMessage());
+
+        try (InputStream in = new FileInputStream(xls)) {
+            assertThrows(ExcelException.class, () -> read(ExcelImporter.create().inputStream(in).maxXlsSize(limit)));
+        }
+        try (InputStream in = new FileInputStream(xls)) {
+            assertEquals(2000, read(ExcelImporter.create().inputStream(in).maxXlsSize(xls.length())).size());
+        }
+        // 0表示不限制，xlsx不受限制
+        assertEquals(2000, read(ExcelImporter.create().inFile(xls).maxXlsSize(0)).size());
+        File xlsx = workbook(ExcelFormat.XLSX, 2000);
+        assertEquals(2000, read(ExcelImporter.create().inFile(xlsx).maxXlsSize(1)).size());
+    }
+}
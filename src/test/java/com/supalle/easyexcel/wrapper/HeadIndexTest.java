@@ -0,0 +1,138 @@
+package com.supalle.easyexcel.wrapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 表头索引：重复表头策略、全角/半角等匹配选项、别名顺序与多行表头的路径
+ */
+class HeadIndexTest {
+
+    public static class Item {
+        private String id;
+        private String name;
+    }
+
+    private static Map<Integer, List<String>> heads(String... names) {
+        Map<Integer, List<String>> headPaths = new TreeMap<>();
+        for (int i = 0; i < names.length; i++) {
+            headPaths.put(i, Collections.singletonList(names[i]));
+        }
+        return headPaths;
+    }
+
+    private static ExcelEntity.ExcelColumnMapping<?, ?, ?> mapping(ExcelEntity<?> excelEntity, int index) {
+        return (ExcelEntity.ExcelColumnMapping<?, ?, ?>) excelEntity.getExcelColumnMappings().get(index);
+    }
+
+    private static ExcelEntity<Item> entity() {
+        return ExcelEntity.of(Item.class)
+                .mapping("编号").getting(item -> item.id).setting((item, v) -> item.id = v)
+                .mapping("名称").getting(item -> item.name).setting((item, v) -> item.name = v)
+                .build();
+    }
+
+    @Test
+    void duplicateHeadPolicies() {
+        ExcelEntity<Item> excelEntity = entity();
+        Map<Integer, List<String>> headPaths = heads("编号", "名称", "备注", "编号");
+        assertEquals(Integer.valueOf(0), new HeadIndex(headPaths, DuplicateHeadPolicy.FIRST).columnIndex(excelEntity, mapping(excelEntity, 0)));
+        assertEquals(Integer.valueOf(3), new HeadIndex(headPaths, DuplicateHeadPolicy.LAST).columnIndex(excelEntity, mapping(excelEntity, 0)));
+        assertEquals(Arrays.asList(0, 3), new HeadIndex(headPaths, DuplicateHeadPolicy.ERROR).candidates(excelEntity, mapping(excelEntity, 0)));
+
+        ExcelException e = assertThrows(ExcelException.class,
+                () -> new HeadIndex(headPaths, DuplicateHeadPolicy.ERROR).columnIndex(excelEntity, mapping(excelEntity, 0)));
+        assertTrue(e.getMessage().contains("第1、4列"), e.getMessage());
+        // 不指定时按ERROR处理，没有重复的列不受影响
+        HeadIndex defaultPolicy = new HeadIndex(headPaths, null);
+        assertEquals(DuplicateHeadPolicy.ERROR, defaultPolicy.getDuplicateHeadPolicy());
+        assertEquals(Integer.valueOf(1), defaultPolicy.columnIndex(excelEntity, mapping(excelEntity, 1)));
+    }
+
+    @Test
+    void missingHead() {
+        ExcelEntity<Item> excelEntity = entity();
+        HeadIndex headIndex = new HeadIndex(heads("编号"), DuplicateHeadPolicy.ERROR);
+        assertNull(headIndex.columnIndex(excelEntity, mapping(excelEntity, 1)));
+        assertTrue(headIndex.candidates(excelEntity, mapping(excelEntity, 1)).isEmpty());
+    }
+
+    @Test
+    void fullWidthMatchesHalfWidth() {
+        Map<Integer, List<String>> headPaths = heads(" 数量（ＰＣＳ） ", "名　称");
+        ExcelEntity<Item> exact = ExcelEntity.of(Item.class)
+                .mapping("数量(PCS)").getting(item -> item.id).setting((item, v) -> item.id = v)
+                .mapping("名 称").getting(item -> item.name).setting((item, v) -> item.name = v)
+                .build();
+        HeadIndex headIndex = new HeadIndex(headPaths, DuplicateHeadPolicy.ERROR);
+        assertNull(headIndex.columnIndex(exact, mapping(exact, 0)));
+        assertNull(headIndex.columnIndex(exact, mapping(exact, 1)));
+
+        ExcelEntity<Item> ignoreWidth = ExcelEntity.of(Item.class)
+                .mapping("数量(pcs)").getting(item -> item.id).setting((item, v) -> item.id = v)
+                .mapping("名 称").getting(item -> item.name).setting((item, v) -> item.name = v)
+                .build()
+                .headMatch(HeadMatch.IGNORE_WIDTH, HeadMatch.IGNORE_CASE);
+        assertEquals(Integer.valueOf(0), headIndex.columnIndex(ignoreWidth, mapping(ignoreWidth, 0)));
+        assertEquals(Integer.valueOf(1), headIndex.columnIndex(ignoreWidth, mapping(ignoreWidth, 1)));
+
+        // 列上的选项优先于实体上的选项
+        ExcelEntity<Item> columnOption = ExcelEntity.of(Item.class)
+                .mapping("数量(PCS)").headMatch(HeadMatch.IGNORE_WIDTH).getting(item -> item.id).setting((item, v) -> item.id = v)
+                .mapping("名称").headMatch(HeadMatch.IGNORE_WHITESPACE).getting(item -> item.name).setting((item, v) -> item.name = v)
+                .build()
+                .headMatch(HeadMatch.IGNORE_CASE);
+        assertEquals(Integer.valueOf(0), headIndex.columnIndex(columnOption, mapping(columnOption, 0)));
+        assertEquals(Integer.valueOf(1), headIndex.columnIndex(columnOption, mapping(columnOption, 1)));
+    }
+
+    @Test
+    void aliasesInDeclaredOrder() {
+        ExcelEntity<Item> excelEntity = ExcelEntity.of(Item.class)
+                .mapping("编号").getting(item -> item.id).setting((item, v) -> item.id = v)
+                .mapping("名称").aliases("商品名称", "品名").getting(item -> item.name).setting((item, v) -> item.name = v)
+                .build();
+        ExcelEntity.ExcelColumnMapping<?, ?, ?> name = mapping(excelEntity, 1);
+        assertEquals(Integer.valueOf(1), new HeadIndex(heads("品名", "商品名称"), DuplicateHeadPolicy.ERROR).columnIndex(excelEntity, name));
+        assertEquals(Integer.valueOf(0), new HeadIndex(heads("品名", "编号"), DuplicateHeadPolicy.ERROR).columnIndex(excelEntity, name));
+        // 列名优先于别名
+        assertEquals(Integer.valueOf(2), new HeadIndex(heads("品名", "商品名称", "名称"), DuplicateHeadPolicy.ERROR).columnIndex(excelEntity, name));
+        assertEquals(Arrays.asList("名称"), name.getHeadPath());
+    }
+
+    @Test
+    void groupedHeadPaths() {
+        Map<Integer, String> groups = new HashMap<>();
+        groups.put(0, "基本信息");
+        groups.put(2, "库存");
+        Map<Integer, String> names = new HashMap<>();
+        names.put(0, "编号");
+        names.put(1, "名称");
+        names.put(2, "名称");
+        Map<Integer, List<String>> headPaths = HeadIndex.headPaths(Arrays.asList(groups, names));
+        assertEquals(Arrays.asList("基本信息", "编号"), headPaths.get(0));
+        assertEquals(Arrays.asList("基本信息", "名称"), headPaths.get(1));
+        assertEquals(Arrays.asList("库存", "名称"), headPaths.get(2));
+
+        ExcelEntity<Item> excelEntity = ExcelEntity.of(Item.class)
+                .mapping("编号").getting(item -> item.id).setting((item, v) -> item.id = v)
+                .mapping("名称").group("库存").getting(item -> item.name).setting((item, v) -> item.name = v)
+                .build();
+        HeadIndex headIndex = new HeadIndex(headPaths, DuplicateHeadPolicy.ERROR);
+        assertEquals(Integer.valueOf(0), headIndex.columnIndex(excelEntity, mapping(excelEntity, 0)));
+        assertEquals(Integer.valueOf(2), headIndex.columnIndex(excelEntity, mapping(excelEntity, 1)));
+        assertEquals("库存/名称", headIndex.getHeadMap().get(2));
+
+        // 没有分组的列按列名匹配，两个分组下都有时按重复处理
+        ExcelEntity<Item> ungrouped = entity();
+        assertThrows(ExcelException.class, () -> headIndex.columnIndex(ungrouped, mapping(ungrouped, 1)));
+    }
+}